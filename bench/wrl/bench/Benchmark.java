@@ -0,0 +1,64 @@
+package wrl.bench;
+
+/**
+ * A timed operation. Subclasses prepare their state in {@linkplain #setUp()} and define one operation in {@linkplain #operation()}.
+ * The operation is warmed up before being measured so the JIT has compiled it, and the values it returns are folded
+ * into a sink so the work cannot be optimized away.
+ * @author Arun Sundaram
+ *
+ */
+public abstract class Benchmark {
+
+	private String name;
+	/** Returns the name this benchmark is reported and filtered by. */
+	public String name() { return name; }
+
+	private long sink;
+
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	/** Prepares the state used by {@linkplain #operation()}. Not timed. */
+	protected void setUp() { }
+
+	/** Performs one operation and returns a value derived from its result. */
+	protected abstract long operation();
+
+	/**
+	 * Runs the operation for {@code warmupMillis}, then times it in batches for {@code measureMillis}.
+	 * @return the mean and best batch times in nanoseconds per operation as {@code {mean, best}}
+	 */
+	public double[] measure(long warmupMillis, long measureMillis) {
+		setUp();
+		long end = System.nanoTime() + warmupMillis * 1000000;
+		int batch = 1;
+		while (System.nanoTime() < end) {
+			long start = System.nanoTime();
+			for (int i=0; i<batch; i++)
+				sink += operation();
+			if (System.nanoTime() - start < 10000000)
+				batch *= 2;
+		}
+
+		long total = 0, operations = 0;
+		double best = Double.MAX_VALUE;
+		end = System.nanoTime() + measureMillis * 1000000;
+		while (System.nanoTime() < end) {
+			long start = System.nanoTime();
+			for (int i=0; i<batch; i++)
+				sink += operation();
+			long elapsed = System.nanoTime() - start;
+			total += elapsed;
+			operations += batch;
+			best = Math.min(best, elapsed / (double) batch);
+		}
+		return new double[] { total / (double) operations, best };
+	}
+
+	/** Returns the accumulated results so callers can keep them observable. */
+	public long sink() {
+		return sink;
+	}
+
+}
@@ -0,0 +1,288 @@
+package wrl.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import asciiPanel.AsciiPanel;
+import wrl.Creature;
+import wrl.EventOrganizer;
+import wrl.FieldOfView;
+import wrl.Line;
+import wrl.LineWalker;
+import wrl.PathFinder;
+import wrl.Point;
+import wrl.Simulation;
+import wrl.Tile;
+import wrl.Updatable;
+import wrl.World;
+import wrl.WorldBuilder;
+import wrl.screens.PlayScreen;
+
+/**
+ * Benchmarks for world generation, path finding, field of view, scheduling and rendering.
+ * Every world and every sequence of inputs comes from a fixed seed, so results can be compared across commits.
+ * <br>Build and run from the project root with:
+ * <pre>
+ * javac -cp asciiPanel.jar -d out $(find src bench -name '*.java')
+ * java -Djava.awt.headless=true -cp out:asciiPanel.jar wrl.bench.Benchmarks [filter...]
+ * </pre>
+ * Only benchmarks whose names contain one of the filters are run. The results of every operation are summed and printed last, so none of the work can be optimized away.
+ * @author Arun Sundaram
+ *
+ */
+public class Benchmarks {
+
+	private static final long SEED = 20180517L;
+	private static final long WARMUP_MILLIS = 1000;
+	private static final long MEASURE_MILLIS = 2000;
+
+	public static void main(String[] args) {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		benchmarks.add(makeCaves(90, 31, 10));
+		benchmarks.add(makeCaves(200, 80, 10));
+		benchmarks.add(makeCaves(250, 250, 4));
+		benchmarks.add(findPath());
+		for (int radius : new int[] {5, 10, 15, 20})
+			benchmarks.add(fieldOfView(radius));
+		for (int count : new int[] {100, 1000, 10000, 100000})
+			benchmarks.add(nextUpdate(count));
+		benchmarks.add(shortestPathInRange());
+		benchmarks.add(waterRange(false));
+		benchmarks.add(waterRange(true));
+		benchmarks.add(lineOfSight(false));
+		benchmarks.add(lineOfSight(true));
+		benchmarks.add(displayOutput());
+		benchmarks.add(simulationStep());
+
+		long sink = 0;
+		System.out.println(String.format("%-40s %14s %14s", "benchmark", "mean ns/op", "best ns/op"));
+		for (Benchmark benchmark : benchmarks) {
+			if (!selected(benchmark.name(), args))
+				continue;
+			double[] result = benchmark.measure(WARMUP_MILLIS, MEASURE_MILLIS);
+			sink += benchmark.sink();
+			System.out.println(String.format("%-40s %14.1f %14.1f", benchmark.name(), result[0], result[1]));
+		}
+		System.out.println(String.format("%-40s %14d", "sink", sink));
+	}
+
+	/** Returns {@code true} if no filters are given or {@code name} contains one of them. */
+	private static boolean selected(String name, String[] filters) {
+		if (filters.length == 0)
+			return true;
+		for (String filter : filters)
+			if (name.contains(filter))
+				return true;
+		return false;
+	}
+
+	/** Returns up to {@code count} random ground locations on level {@code z}. */
+	private static List<Point> groundPoints(World world, int z, int count, Random random) {
+		List<Point> points = new ArrayList<Point>();
+		for (int tries = 0; points.size() < count && tries < count * 1000; tries++) {
+			int x = random.nextInt(world.width()), y = random.nextInt(world.height());
+			if (world.isGround(x, y, z))
+				points.add(new Point(x, y, z));
+		}
+		return points;
+	}
+
+	/** {@linkplain WorldBuilder#makeCaves()} followed by {@linkplain WorldBuilder#build()}. */
+	private static Benchmark makeCaves(int width, int height, int depth) {
+		return new Benchmark("WorldBuilder.makeCaves " + width + "x" + height + "x" + depth) {
+			long seed = SEED;
+			protected long operation() {
+				World world = new WorldBuilder(width, height, depth, seed++).makeCaves().build();
+				return world.tile(width/2, height/2, 0).ordinal();
+			}
+		};
+	}
+
+	/** {@linkplain PathFinder#findPath(Creature, int, int, int, int, int, int)} between random ground cells of a cave. */
+	private static Benchmark findPath() {
+		return new Benchmark("PathFinder.findPath 90x31") {
+			PathFinder pathFinder = new PathFinder();
+			Creature walker;
+			List<Point> points;
+			int next;
+			protected void setUp() {
+				World world = new WorldBuilder(90, 31, 1, SEED).makeCaves().build();
+				walker = new Creature(world, "walker", 'w', AsciiPanel.white, 10, 0, 0);
+				points = groundPoints(world, 0, 256, new Random(SEED));
+			}
+			protected long operation() {
+				Point start = points.get(next++ & 255), end = points.get(next & 255);
+				int[] path = pathFinder.findPath(walker, start.x, start.y, end.x, end.y, 0, 10000);
+				return path == null ? -1 : path.length;
+			}
+		};
+	}
+
+	/** {@linkplain FieldOfView#update(Point, int)} at random ground cells of a large cave. */
+	private static Benchmark fieldOfView(int radius) {
+		return new Benchmark("FieldOfView.update r=" + radius) {
+			FieldOfView fov;
+			List<Point> points;
+			int next;
+			protected void setUp() {
+				World world = new WorldBuilder(120, 120, 1, SEED).makeCaves().build();
+				fov = new FieldOfView(world);
+				points = groundPoints(world, 0, 256, new Random(SEED));
+			}
+			protected long operation() {
+				Point p = points.get(next++ & 255);
+				fov.update(p, radius);
+				return fov.visibility(p);
+			}
+		};
+	}
+
+	/** {@linkplain EventOrganizer#nextUpdate()} with {@code count} scheduled updatables that spend random amounts of AP. */
+	private static Benchmark nextUpdate(int count) {
+		return new Benchmark("EventOrganizer.nextUpdate n=" + count) {
+			EventOrganizer organizer;
+			protected void setUp() {
+				organizer = new EventOrganizer();
+				Random random = new Random(SEED);
+				for (int i=0; i<count; i++)
+					organizer.add(new Ticker(organizer, random.nextInt(100), random.nextInt(150) + 25));
+			}
+			protected long operation() {
+				organizer.nextUpdate();
+				return organizer.size();
+			}
+		};
+	}
+
+	/** An {@linkplain Updatable} that spends a fixed amount of AP on every update. */
+	private static class Ticker implements Updatable {
+		private EventOrganizer organizer;
+		private int ap;
+		private int cost;
+
+		private Ticker(EventOrganizer organizer, int ap, int cost) {
+			this.organizer = organizer;
+			this.ap = ap;
+			this.cost = cost;
+		}
+
+		public int ap() { return ap; }
+		public void modifyAP(int amount) {
+			ap += amount;
+			organizer.reschedule(this);
+		}
+		public void refreshAP() { ap += 100; }
+		public void update() { modifyAP(-cost); }
+		public boolean updatePending() { return true; }
+		public void fastForward(int rounds) { }
+	}
+
+	/** {@linkplain World#getShortestPathInRange(Point, double, java.util.function.Predicate)} searching for water. */
+	private static Benchmark shortestPathInRange() {
+		return new Benchmark("World.getShortestPathInRange r=10") {
+			World world;
+			List<Point> points;
+			int next;
+			protected void setUp() {
+				world = new WorldBuilder(90, 31, 10, SEED).makeCaves().build();
+				points = groundPoints(world, 0, 256, new Random(SEED));
+			}
+			protected long operation() {
+				Point found = world.getShortestPathInRange(points.get(next++ & 255), 10, p -> world.tile(p) == Tile.WATER);
+				return found == null ? -1 : found.x;
+			}
+		};
+	}
+
+	/** Checks whether water is within 3.5 tiles of random ground cells, by a {@linkplain World#getShortestPathInRange(int, int, int, double, wrl.CellPredicate)} search or a {@linkplain World#waterRange(int, int, int)} lookup. */
+	private static Benchmark waterRange(boolean lookup) {
+		return new Benchmark((lookup ? "World.waterRange" : "World.getShortestPathInRange") + " water r=3.5") {
+			World world;
+			List<Point> points;
+			int next;
+			protected void setUp() {
+				world = new WorldBuilder(90, 31, 10, SEED).makeCaves().build();
+				points = groundPoints(world, 0, 256, new Random(SEED));
+				world.waterRange(0, 0, 0);
+			}
+			protected long operation() {
+				Point p = points.get(next++ & 255);
+				if (lookup)
+					return world.waterRange(p.x, p.y, p.z) <= 3.5*3.5 ? 1 : 0;
+				return world.getShortestPathInRange(p.x, p.y, p.z, 3.5, (x, y, z) -> world.tile(x, y, z) == Tile.WATER) != null ? 1 : 0;
+			}
+		};
+	}
+
+	/** Walks lines from random ground cells of a cave to cells up to 9 away until the first obstruction, with a {@linkplain Line} or a {@linkplain LineWalker}. */
+	private static Benchmark lineOfSight(boolean walker) {
+		return new Benchmark((walker ? "LineWalker" : "Line") + " line of sight r=9") {
+			World world;
+			LineWalker line = new LineWalker();
+			List<Point> points;
+			int[] offsets;
+			int next;
+			protected void setUp() {
+				world = new WorldBuilder(90, 31, 1, SEED).makeCaves().build();
+				Random random = new Random(SEED);
+				points = groundPoints(world, 0, 256, random);
+				offsets = new int[512];
+				for (int i=0; i<offsets.length; i++)
+					offsets[i] = random.nextInt(19) - 9;
+			}
+			protected long operation() {
+				int i = next++ & 255;
+				Point p = points.get(i);
+				int x1 = p.x + offsets[2*i], y1 = p.y + offsets[2*i + 1];
+				int steps = 0;
+				if (walker) {
+					line.reset(p.x, p.y, x1, y1);
+					while (line.next() && world.isGround(line.x(), line.y(), 0))
+						steps++;
+				} else {
+					for (Point q : new Line(p.x, p.y, x1, y1, 0)) {
+						if (!world.isGround(q.x, q.y, 0))
+							break;
+						steps++;
+					}
+				}
+				return steps;
+			}
+		};
+	}
+
+	/** {@linkplain PlayScreen#displayOutput(AsciiPanel)} of a new game into an off-screen {@linkplain AsciiPanel}. */
+	private static Benchmark displayOutput() {
+		return new Benchmark("PlayScreen.displayOutput") {
+			PlayScreen screen;
+			AsciiPanel terminal;
+			protected void setUp() {
+				screen = new PlayScreen(SEED);
+				terminal = new AsciiPanel(80, 30);
+			}
+			protected long operation() {
+				screen.displayOutput(terminal);
+				return terminal.getCursorX();
+			}
+		};
+	}
+
+	/** One wandering player turn of a {@linkplain Simulation}. A new simulation is started when the player dies. */
+	private static Benchmark simulationStep() {
+		return new Benchmark("Simulation.step") {
+			Simulation simulation;
+			long seed = SEED;
+			protected void setUp() {
+				simulation = new Simulation(seed++);
+			}
+			protected long operation() {
+				if (simulation.player().isDead())
+					setUp();
+				simulation.step();
+				return simulation.turns();
+			}
+		};
+	}
+
+}
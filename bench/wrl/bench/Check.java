@@ -0,0 +1,46 @@
+package wrl.bench;
+
+import java.util.Random;
+
+/**
+ * A randomized differential check. Subclasses drive an optimized structure and a plain model of it through the same random operations
+ * in {@linkplain #run(Random)} and report every disagreement through {@linkplain #expect(boolean, String)}.
+ * @author Arun Sundaram
+ *
+ */
+public abstract class Check {
+
+	/** Number of failures printed per check. Later failures are only counted. */
+	private static final int REPORTED = 5;
+
+	private String name;
+	/** Returns the name this check is reported and filtered by. */
+	public String name() { return name; }
+
+	private int failures;
+	private long seed;
+
+	protected Check(String name) {
+		this.name = name;
+	}
+
+	/** Performs the random operations and compares the results with the model. */
+	protected abstract void run(Random random);
+
+	/** Records a failure described by {@code message} unless {@code condition} holds. */
+	protected void expect(boolean condition, String message) {
+		if (condition)
+			return;
+		if (failures++ < REPORTED)
+			System.out.println("  " + name + ", seed " + seed + ": " + message);
+	}
+
+	/** Runs the check with a random source seeded by {@code seed} and returns the number of failures. */
+	public int check(long seed) {
+		this.failures = 0;
+		this.seed = seed;
+		run(new Random(seed));
+		return failures;
+	}
+
+}
@@ -0,0 +1,802 @@
+package wrl.bench;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import asciiPanel.AsciiPanel;
+import wrl.BreadthFirstSearch;
+import wrl.CellPredicate;
+import wrl.Creature;
+import wrl.CreatureIndex;
+import wrl.EventOrganizer;
+import wrl.FieldOfView;
+import wrl.FreeCells;
+import wrl.Hazard;
+import wrl.HazardGrid;
+import wrl.Item;
+import wrl.ItemDespawnable;
+import wrl.Point;
+import wrl.RenderSnapshot;
+import wrl.Simulation;
+import wrl.Tile;
+import wrl.Updatable;
+import wrl.WaterMap;
+import wrl.World;
+import wrl.WorldBuilder;
+
+/**
+ * Randomized differential checks of the indexes and searches that replaced simpler code. Each check drives a structure through
+ * seeded random operations and compares every answer with a plain model, so a failure names the seed and operation that reproduce it.
+ * <br>Build and run from the project root with:
+ * <pre>
+ * javac -cp asciiPanel.jar -d out $(find src bench -name '*.java')
+ * java -Djava.awt.headless=true -cp out:asciiPanel.jar wrl.bench.Checks [filter...]
+ * </pre>
+ * Only checks whose names contain one of the filters are run. The exit status is {@code 1} if any check failed.
+ * @author Arun Sundaram
+ *
+ */
+public class Checks {
+
+	private static final long SEED = 20180517L;
+	private static final int SEEDS = 5;
+
+	public static void main(String[] args) {
+		List<Check> checks = new ArrayList<Check>();
+		checks.add(eventOrganizer());
+		checks.add(creatureIndex());
+		checks.add(hazardGrid());
+		checks.add(freeCells());
+		checks.add(addAtEmptyLocation());
+		checks.add(shortestPathInRange());
+		checks.add(distances());
+		checks.add(waterRange());
+		checks.add(despawnAfterFreeze());
+		checks.add(renderSnapshot());
+		checks.add(stairs());
+
+		int failed = 0;
+		for (Check check : checks) {
+			if (!selected(check.name(), args))
+				continue;
+			int failures = 0;
+			for (long seed=SEED; seed<SEED + SEEDS; seed++)
+				failures += check.check(seed);
+			System.out.println(String.format("%-40s %s", check.name(), failures == 0 ? "ok" : failures + " failures"));
+			if (failures > 0)
+				failed++;
+		}
+		if (failed > 0)
+			System.exit(1);
+	}
+
+	/** Returns {@code true} if no filters are given or {@code name} contains one of them. */
+	private static boolean selected(String name, String[] filters) {
+		if (filters.length == 0)
+			return true;
+		for (String filter : filters)
+			if (name.contains(filter))
+				return true;
+		return false;
+	}
+
+	/** An {@linkplain Updatable} that spends a fixed amount of AP per update, with the AP and insertion tick a correct queue would give it. */
+	private static class Task implements Updatable {
+		private EventOrganizer organizer;
+		private int ap;
+		private int cost;
+		private boolean pending;
+		private int updates;
+
+		private int expectedAP;
+		private int tick;
+
+		private Task(EventOrganizer organizer, int ap, int cost, boolean pending) {
+			this.organizer = organizer;
+			this.ap = ap;
+			this.cost = cost;
+			this.pending = pending;
+			this.expectedAP = ap;
+		}
+
+		public int ap() { return ap; }
+		public void modifyAP(int amount) {
+			if (amount != 0) {
+				ap += amount;
+				organizer.reschedule(this);
+			}
+		}
+		public void refreshAP() { ap += 100; }
+		public void update() {
+			updates++;
+			modifyAP(-cost);
+		}
+		public boolean updatePending() { return pending; }
+		public void fastForward(int rounds) { }
+	}
+
+	/**
+	 * {@linkplain EventOrganizer} against a list kept in queue order by a linear scan: adds, re-adds, removals, AP changes and updates,
+	 * checking the next updatable, the AP of every updatable and the round count after each one.
+	 */
+	private static Check eventOrganizer() {
+		return new Check("EventOrganizer") {
+			EventOrganizer organizer;
+			List<Task> queued;
+			int tick;
+			int rounds;
+			protected void run(Random random) {
+				organizer = new EventOrganizer();
+				queued = new ArrayList<Task>();
+				tick = 0;
+				rounds = 0;
+				for (int step=0; step<5000; step++) {
+					int op = random.nextInt(10);
+					if (op < 2 || queued.isEmpty()) {
+						Task task = new Task(organizer, random.nextInt(601) - 300, 1 + random.nextInt(150), random.nextInt(10) > 0);
+						organizer.add(task);
+						task.tick = tick++;
+						queued.add(task);
+					} else if (op == 2) {
+						Task task = queued.get(random.nextInt(queued.size()));
+						organizer.add(task);
+						task.tick = tick++;
+					} else if (op == 3) {
+						organizer.remove(queued.remove(random.nextInt(queued.size())));
+					} else if (op == 4) {
+						Task task = queued.get(random.nextInt(queued.size()));
+						int amount = random.nextInt(401) - 200;
+						task.modifyAP(amount);
+						if (amount != 0) {
+							task.expectedAP += amount;
+							task.tick = tick++;
+						}
+					} else {
+						Task next = next();
+						int updates = next.updates;
+						if (next.expectedAP <= 0) {
+							rounds++;
+							for (Task task : queued)
+								task.expectedAP += 100;
+						}
+						next.expectedAP -= next.cost;
+						next.tick = tick++;
+						if (!next.pending)
+							queued.remove(next);
+						organizer.nextUpdate();
+						expect(next.updates == updates + 1, "step " + step + ": updated the wrong updatable");
+					}
+					compare(step);
+				}
+			}
+			/** Returns the queued task with the most AP, and of those the least recently scheduled. */
+			Task next() {
+				Task next = null;
+				for (Task task : queued)
+					if (next == null || task.expectedAP > next.expectedAP || (task.expectedAP == next.expectedAP && task.tick < next.tick))
+						next = task;
+				return next;
+			}
+			void compare(int step) {
+				expect(organizer.size() == queued.size(), "step " + step + ": size " + organizer.size() + ", expected " + queued.size());
+				expect(organizer.rounds() == rounds, "step " + step + ": rounds " + organizer.rounds() + ", expected " + rounds);
+				if (!queued.isEmpty())
+					expect(organizer.isNext(next()), "step " + step + ": wrong next updatable");
+				for (Task task : queued)
+					expect(task.ap == task.expectedAP && organizer.contains(task), "step " + step + ": AP " + task.ap + ", expected " + task.expectedAP);
+			}
+		};
+	}
+
+	/**
+	 * {@linkplain CreatureIndex} against a map from cells to the creature last moved there: moves within and between levels, moves onto
+	 * occupied cells and out of bounds, and removals, checking every cell and the creature list of every level after each one.
+	 */
+	private static Check creatureIndex() {
+		return new Check("CreatureIndex") {
+			final int width = 12, height = 8, depth = 3;
+			protected void run(Random random) {
+				World world = new WorldBuilder(width, height, depth, random.nextLong()).buildLazy();
+				CreatureIndex index = new CreatureIndex(width, height, depth);
+				List<Creature> creatures = new ArrayList<Creature>();
+				Map<Integer, Creature> cells = new HashMap<Integer, Creature>();
+				Map<Creature, Integer> levels = new HashMap<Creature, Integer>();
+				for (int step=0; step<2000; step++) {
+					if (creatures.isEmpty() || random.nextInt(10) == 0)
+						creatures.add(new Creature(world, "c" + step, 'c', AsciiPanel.white, 10, 0, 0));
+					Creature creature = creatures.get(random.nextInt(creatures.size()));
+					Integer from = cellOf(creature, cells);
+					if (from != null)
+						cells.remove(from);
+					if (random.nextInt(8) == 0) {
+						index.remove(creature);
+						levels.remove(creature);
+					} else {
+						int x = random.nextInt(width + 2) - 1, y = random.nextInt(height + 2) - 1, z = random.nextInt(depth);
+						index.move(creature, x, y, z);
+						if (x < 0 || x >= width || y < 0 || y >= height) {
+							levels.remove(creature);
+						} else {
+							cells.put((z*height + y)*width + x, creature);
+							levels.put(creature, z);
+						}
+					}
+					for (int z=0; z<depth; z++) {
+						for (int y=0; y<height; y++)
+							for (int x=0; x<width; x++)
+								expect(index.get(x, y, z) == cells.get((z*height + y)*width + x), "step " + step + ": wrong creature at " + x + "," + y + "," + z);
+						HashSet<Creature> expected = new HashSet<Creature>();
+						for (Map.Entry<Creature, Integer> entry : levels.entrySet())
+							if (entry.getValue() == z)
+								expected.add(entry.getKey());
+						List<Creature> listed = index.creatures(z);
+						expect(listed.size() == expected.size() && expected.containsAll(listed), "step " + step + ": wrong creatures on level " + z);
+					}
+				}
+			}
+			/** Returns the cell {@code creature} holds in {@code cells}, or {@code null} if it holds none. */
+			Integer cellOf(Creature creature, Map<Integer, Creature> cells) {
+				for (Map.Entry<Integer, Creature> entry : cells.entrySet())
+					if (entry.getValue() == creature)
+						return entry.getKey();
+				return null;
+			}
+		};
+	}
+
+	/** A {@linkplain Hazard} that is never scheduled and can be given a location before it is added to the world, as the clones of a {@linkplain wrl.Splash} are. */
+	private static class Stain extends Hazard {
+		private Stain(World world, Color background) {
+			super(world, "stain", (char)0, null, background, 10);
+		}
+		public boolean updatePending() { return false; }
+		private void place(Point p) { setLocation(p); }
+	}
+
+	/**
+	 * The {@linkplain HazardGrid} of a {@linkplain World} against a list of hazards: adds in and out of bounds, removals, moves, background changes
+	 * and bulk adds of a {@linkplain wrl.Splash}-like footprint, checking the averaged background and presence of every cell.
+	 */
+	private static Check hazardGrid() {
+		return new Check("HazardGrid") {
+			final int width = 30, height = 20;
+			World world;
+			List<Hazard> live;
+			protected void run(Random random) {
+				world = new WorldBuilder(width, height, 2, random.nextLong()).buildLazy();
+				world.loadLevel(0);
+				world.loadLevel(1);
+				live = new ArrayList<Hazard>();
+				for (int step=0; step<3000; step++) {
+					int op = random.nextInt(5);
+					if (op == 0 || live.isEmpty()) {
+						Hazard hazard = new Stain(world, random.nextBoolean() ? null : randomColor(random));
+						hazard.relocate(randomPoint(random, 2));
+						live.add(hazard);
+					} else if (op == 1) {
+						world.remove(live.remove(random.nextInt(live.size())));
+					} else if (op == 2) {
+						live.get(random.nextInt(live.size())).relocate(randomPoint(random, 2));
+					} else if (op == 3) {
+						live.get(random.nextInt(live.size())).setBackground(random.nextBoolean() ? null : randomColor(random));
+					} else {
+						Point p = randomPoint(random, 0);
+						List<Hazard> footprint = new ArrayList<Hazard>();
+						for (int i=0; i<3; i++) {
+							Stain stain = new Stain(world, randomColor(random));
+							stain.place(p);
+							footprint.add(stain);
+						}
+						world.addAll(footprint);
+						live.addAll(footprint);
+					}
+					if (step % 50 == 0)
+						compare(step);
+				}
+				compare(3000);
+			}
+			Color randomColor(Random random) {
+				return new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+			}
+			/** Returns a random location on level 0 or 1, up to {@code margin} cells outside the world. */
+			Point randomPoint(Random random, int margin) {
+				int x = random.nextInt(width + 2*margin) - margin, y = random.nextInt(height + 2*margin) - margin;
+				return world.point(x, y, random.nextInt(2));
+			}
+			void compare(int step) {
+				for (int z=0; z<2; z++) {
+					for (int y=0; y<height; y++) {
+						for (int x=0; x<width; x++) {
+							int red = 0, green = 0, blue = 0, count = 0;
+							boolean any = false;
+							for (Hazard hazard : live) {
+								if (hazard.x() != x || hazard.y() != y || hazard.z() != z)
+									continue;
+								any = true;
+								if (hazard.background() != null) {
+									red += hazard.background().getRed();
+									green += hazard.background().getGreen();
+									blue += hazard.background().getBlue();
+									count++;
+								}
+							}
+							Color expected = count == 0 ? World.TRANSPARENT : new Color(red/count, green/count, blue/count);
+							expect(expected.equals(world.backgroundColor(world.point(x, y, z))), "step " + step + ": wrong background at " + x + "," + y + "," + z);
+							expect(any == world.hasHazard(x, y, z), "step " + step + ": wrong presence at " + x + "," + y + "," + z);
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@linkplain FreeCells} against a boolean per cell: indexing, changes, releases and samples with random predicates, checking every cell,
+	 * the count and the listed cells of each level after each one. A sample must be free and valid, and may only fail if no free cell is valid.
+	 */
+	private static Check freeCells() {
+		return new Check("FreeCells") {
+			final int cellsPerLevel = 200, depth = 3;
+			protected void run(Random random) {
+				FreeCells index = new FreeCells(cellsPerLevel, depth);
+				boolean[][] free = new boolean[depth][];
+				for (int step=0; step<3000; step++) {
+					int z = random.nextInt(depth);
+					int op = random.nextInt(20);
+					if (op == 0 || free[z] == null) {
+						boolean[] level = new boolean[cellsPerLevel];
+						int percent = random.nextInt(101);
+						for (int cell=0; cell<cellsPerLevel; cell++)
+							level[cell] = random.nextInt(100) < percent;
+						index.index(z, cell -> level[cell]);
+						free[z] = level;
+					} else if (op == 1) {
+						index.release(z);
+						free[z] = null;
+					} else if (op < 12) {
+						int cell = random.nextInt(cellsPerLevel);
+						boolean value = random.nextBoolean();
+						index.set(z, cell, value);
+						free[z][cell] = value;
+					} else {
+						int modulus = random.nextBoolean() ? 1 : 1 + random.nextInt(cellsPerLevel);
+						int cell = index.sample(z, random, c -> c % modulus == 0);
+						boolean any = false;
+						for (int c=0; c<cellsPerLevel; c+=modulus)
+							any |= free[z][c];
+						if (cell < 0)
+							expect(!any, "step " + step + ": no sample although a free cell is valid");
+						else
+							expect(free[z][cell] && cell % modulus == 0, "step " + step + ": sampled cell " + cell + " is taken or invalid");
+					}
+					for (int level=0; level<depth; level++) {
+						expect(index.isIndexed(level) == (free[level] != null), "step " + step + ": level " + level + " indexed wrongly");
+						if (free[level] == null)
+							continue;
+						int count = 0, wrong = 0;
+						for (int cell=0; cell<cellsPerLevel; cell++) {
+							if (index.contains(level, cell) != free[level][cell])
+								wrong++;
+							if (free[level][cell])
+								count++;
+						}
+						expect(wrong == 0, "step " + step + ": " + wrong + " cells in the wrong state on level " + level);
+						expect(index.size(level) == count, "step " + step + ": size " + index.size(level) + ", expected " + count);
+						HashSet<Integer> listed = new HashSet<Integer>();
+						index.sample(level, random, cell -> { listed.add(cell); return false; });
+						int taken = 0;
+						for (int cell : listed)
+							if (!free[level][cell])
+								taken++;
+						expect(taken == 0 && listed.size() == count, "step " + step + ": " + listed.size() + " cells listed on level " + level + " with " + taken + " taken, expected " + count);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@linkplain World#addAtEmptyLocation(Item, int)} against a scan of the level while items are placed and removed and tiles are dug and caved in.
+	 * Every item must land on ground without another item, and placing may only fail once the level has no such cell left.
+	 */
+	private static Check addAtEmptyLocation() {
+		return new Check("World.addAtEmptyLocation") {
+			final int width = 40, height = 20;
+			protected void run(Random random) {
+				World world = new WorldBuilder(width, height, 1, random.nextLong()).buildLazy();
+				List<Item> placed = new ArrayList<Item>();
+				for (int step=0; step<4000; step++) {
+					int op = random.nextInt(10);
+					if (op < 6) {
+						Item item = new Item(world, "rock", ',', AsciiPanel.yellow);
+						Point p = world.addAtEmptyLocation(item, 0);
+						if (p == null) {
+							expect(emptyGround(world) == 0, "step " + step + ": no location although " + emptyGround(world) + " are empty");
+						} else {
+							expect(world.isGround(p.x, p.y, p.z) && world.item(p.x, p.y, p.z) == item, "step " + step + ": placed on " + p);
+							placed.add(item);
+						}
+					} else if (op < 8 && !placed.isEmpty()) {
+						world.remove(placed.remove(random.nextInt(placed.size())));
+					} else {
+						Point p = world.point(random.nextInt(width), random.nextInt(height), 0);
+						if (op == 8)
+							world.dig(p);
+						else
+							world.caveIn(p);
+					}
+				}
+			}
+			/** Returns the number of ground cells of level 0 without an item. */
+			int emptyGround(World world) {
+				int count = 0;
+				for (int y=0; y<height; y++)
+					for (int x=0; x<width; x++)
+						if (world.isGround(x, y, 0) && world.item(x, y, 0) == null)
+							count++;
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of steps from ({@code x}, {@code y}) to every cell of level {@code z} reached across ground without leaving {@code range}
+	 * of the start, or {@code -1} for cells not reached. This is the search the old Dijkstra implementation of
+	 * {@linkplain World#getShortestPathInRange(Point, double, java.util.function.Predicate)} made, with every step costing one.
+	 */
+	private static int[] stepsInRange(World world, int x, int y, int z, double range) {
+		int width = world.width(), height = world.height();
+		int[] steps = new int[width * height];
+		Arrays.fill(steps, -1);
+		steps[y*width + x] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(y*width + x);
+		while (!queue.isEmpty()) {
+			int cell = queue.poll();
+			for (int dx=-1; dx<=1; dx++) {
+				for (int dy=-1; dy<=1; dy++) {
+					int nx = cell % width + dx, ny = cell / width + dy;
+					if (nx < 0 || nx >= width || ny < 0 || ny >= height || steps[ny*width + nx] >= 0)
+						continue;
+					if (!world.isGround(nx, ny, z) || (nx - x)*(nx - x) + (ny - y)*(ny - y) > range*range)
+						continue;
+					steps[ny*width + nx] = steps[cell] + 1;
+					queue.add(ny*width + nx);
+				}
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * {@linkplain World#getShortestPathInRange(int, int, int, double, CellPredicate)} against {@linkplain #stepsInRange(World, int, int, int, double)}
+	 * on random starts, ranges and predicates, between rounds of random digs and cave-ins. The cell found must satisfy the predicate and be
+	 * as few steps away as the closest one that does, and no cell may be found only when none is in range.
+	 */
+	private static Check shortestPathInRange() {
+		return new Check("World.getShortestPathInRange") {
+			final int width = 90, height = 31, depth = 3;
+			final double[] ranges = {1.5, 2, 3.5, 10};
+			protected void run(Random random) {
+				World world = new WorldBuilder(width, height, depth, random.nextLong()).makeCaves().build();
+				for (int round=0; round<4; round++) {
+					for (int i=0; i<1000; i++) {
+						int x = random.nextInt(width), y = random.nextInt(height), z = random.nextInt(depth);
+						double range = ranges[random.nextInt(ranges.length)];
+						int modulus = 2 + random.nextInt(30);
+						CellPredicate valid = random.nextBoolean()
+								? (px, py, pz) -> world.tile(px, py, pz) == Tile.WATER
+								: (px, py, pz) -> (px*7 + py*3) % modulus == 0;
+						int[] steps = stepsInRange(world, x, y, z, range);
+						int closest = -1;
+						if (valid.test(x, y, z))
+							closest = 0;
+						else
+							for (int cell=0; cell<steps.length; cell++)
+								if (steps[cell] > 0 && valid.test(cell % width, cell / width, z) && (closest < 0 || steps[cell] < closest))
+									closest = steps[cell];
+						Point found = world.getShortestPathInRange(x, y, z, range, valid);
+						String query = "round " + round + ": from " + x + "," + y + "," + z + " in range " + range;
+						if (found == null) {
+							expect(closest < 0, query + " found nothing, expected " + closest + " steps");
+						} else {
+							boolean ok = found.z == z && valid.test(found.x, found.y, z) && steps[found.y*width + found.x] == closest;
+							expect(ok, query + " found " + found + " " + steps[found.y*width + found.x] + " steps away, expected " + closest);
+						}
+					}
+					digAndCaveIn(world, random, 300);
+				}
+			}
+		};
+	}
+
+	/** {@linkplain BreadthFirstSearch#distances(int, CellPredicate, int[])} to water against one {@linkplain #stepsInRange(World, int, int, int, double)} per water cell. */
+	private static Check distances() {
+		return new Check("BreadthFirstSearch.distances") {
+			final int width = 40, height = 20, depth = 2;
+			protected void run(Random random) {
+				World world = new WorldBuilder(width, height, depth, random.nextLong()).makeCaves().build();
+				BreadthFirstSearch search = new BreadthFirstSearch(world);
+				int[] distances = new int[width * height];
+				for (int round=0; round<4; round++) {
+					for (int z=0; z<depth; z++) {
+						int[] expected = new int[width * height];
+						Arrays.fill(expected, BreadthFirstSearch.UNREACHABLE);
+						for (int cell=0; cell<expected.length; cell++) {
+							if (world.tile(cell % width, cell / width, z) != Tile.WATER)
+								continue;
+							int[] steps = stepsInRange(world, cell % width, cell / width, z, width + height);
+							for (int other=0; other<steps.length; other++)
+								if (steps[other] >= 0 && world.isGround(other % width, other / width, z))
+									expected[other] = Math.min(expected[other], steps[other]);
+						}
+						search.distances(z, (x, y, wz) -> world.tile(x, y, wz) == Tile.WATER, distances);
+						int wrong = 0;
+						for (int cell=0; cell<distances.length; cell++)
+							if (distances[cell] != expected[cell])
+								wrong++;
+						expect(wrong == 0, "round " + round + ": " + wrong + " wrong distances on level " + z);
+					}
+					digAndCaveIn(world, random, 100);
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@linkplain World#waterRange(int, int, int)} against {@linkplain #stepsInRange(World, int, int, int, double)} for every cell and every squared range
+	 * the {@linkplain WaterMap} tells apart, between rounds of random digs and cave-ins that the map patches.
+	 */
+	private static Check waterRange() {
+		return new Check("World.waterRange") {
+			final int width = 40, height = 20, depth = 2;
+			final int[] squaredRanges = {0, 1, 2, 4, 5, 8, 9, 10, 13, 16};
+			protected void run(Random random) {
+				World world = new WorldBuilder(width, height, depth, random.nextLong()).makeCaves().build();
+				for (int round=0; round<4; round++) {
+					for (int z=0; z<depth; z++) {
+						int wrong = 0;
+						for (int y=0; y<height; y++) {
+							for (int x=0; x<width; x++) {
+								int expected = WaterMap.FAR;
+								for (int squared : squaredRanges) {
+									if (nearWater(world, x, y, z, Math.sqrt(squared) + 1e-9)) {
+										expected = squared;
+										break;
+									}
+								}
+								if (world.waterRange(x, y, z) != expected)
+									wrong++;
+							}
+						}
+						expect(wrong == 0, "round " + round + ": " + wrong + " wrong ranges on level " + z);
+					}
+					digAndCaveIn(world, random, 150);
+				}
+			}
+			/** Returns {@code true} if water can be reached from ({@code x}, {@code y}, {@code z}) without leaving {@code range} of it. */
+			boolean nearWater(World world, int x, int y, int z, double range) {
+				if (world.tile(x, y, z) == Tile.WATER)
+					return true;
+				int[] steps = stepsInRange(world, x, y, z, range);
+				for (int cell=0; cell<steps.length; cell++)
+					if (steps[cell] > 0 && world.tile(cell % width, cell / width, z) == Tile.WATER)
+						return true;
+				return false;
+			}
+		};
+	}
+
+	/** Stands in for the player: always ahead of a despawning item in the queue, spending all of its AP each update. */
+	private static class Walker implements Updatable {
+		private World world;
+		private int ap;
+		private Walker(World world) { this.world = world; }
+		public int ap() { return ap; }
+		public void modifyAP(int amount) {
+			if (amount != 0) {
+				ap += amount;
+				world.rescheduleUpdate(this);
+			}
+		}
+		public void refreshAP() { ap += 100; }
+		public void update() { modifyAP(-ap); }
+		public boolean updatePending() { return true; }
+		public void fastForward(int rounds) { }
+	}
+
+	/**
+	 * An {@linkplain ItemDespawnable} whose level is frozen for some of its rounds against one that is never frozen. Freezing for fewer or exactly as many
+	 * rounds as remain must despawn the item in the same round as without freezing; freezing for longer must despawn it as the level thaws.
+	 */
+	private static Check despawnAfterFreeze() {
+		return new Check("ItemDespawnable fast forward") {
+			protected void run(Random random) {
+				for (int i=0; i<6; i++) {
+					int turns = 1 + random.nextInt(30);
+					int expected = despawnRound(turns, -1, random.nextLong());
+					for (int frozen : new int[] {0, turns - 1, turns, turns + 1, 2*turns}) {
+						int round = despawnRound(turns, frozen, random.nextLong());
+						expect(round == Math.max(expected, frozen), "despawn after " + turns + " turns frozen for " + frozen + " rounds at round " + round
+								+ ", expected " + Math.max(expected, frozen));
+					}
+				}
+			}
+			/**
+			 * Returns the round an item with {@code turns} turns to live despawns in, counting rounds skipped by fast forwarding its level,
+			 * or {@code -1} if it is still there after twice its lifetime. A negative {@code frozen} never fast forwards the level.
+			 */
+			int despawnRound(int turns, int frozen, long seed) {
+				World world = new WorldBuilder(40, 20, 2, seed).makeCaves().build();
+				world.scheduleUpdate(new Walker(world));
+				Item item = new ItemDespawnable(world, "corpse", '%', AsciiPanel.red, turns);
+				Point p = world.addAtEmptyLocation(item, 0);
+				int skipped = 0;
+				if (frozen >= 0) {
+					world.fastForwardLevel(0, frozen);
+					skipped = frozen;
+				}
+				while (world.rounds() + skipped <= 2*turns + 2) {
+					if (world.item(p.x, p.y, p.z) != item)
+						return world.rounds() + skipped;
+					world.singleUpdate(null);
+				}
+				return -1;
+			}
+		};
+	}
+
+	/**
+	 * {@linkplain RenderSnapshot} against drawing each cell from its {@linkplain Point} as the play screen did before the snapshot:
+	 * cells the player can see show their contents shaded by the field of view, detected creatures are dark gray and the rest is remembered.
+	 * The player wanders a simulated world and detects creatures in a random radius.
+	 */
+	private static Check renderSnapshot() {
+		return new Check("RenderSnapshot") {
+			protected void run(Random random) {
+				Simulation simulation = new Simulation(random.nextLong());
+				World world = simulation.world();
+				Creature player = simulation.player();
+				FieldOfView fov = simulation.fov();
+				RenderSnapshot snapshot = new RenderSnapshot(80, 21);
+				player.modifyDetectCreatures(random.nextInt(30));
+				for (int step=0; step<40 && !player.isDead(); step++) {
+					simulation.step();
+					fov.update(player.location(), player.visionRadius());
+					int left = Math.max(0, Math.min(player.x() - snapshot.width()/2, world.width() - snapshot.width()));
+					int top = Math.max(0, Math.min(player.y() - snapshot.height()/2, world.height() - snapshot.height()));
+					snapshot.update(world, player, fov, left, top, player.z());
+					int mismatches = 0;
+					for (int y=0; y<snapshot.height(); y++) {
+						for (int x=0; x<snapshot.width(); x++) {
+							Point p = world.point(x + left, y + top, player.z());
+							char glyph;
+							Color foreground, background = null;
+							if (player.canSee(p)) {
+								glyph = world.glyph(p, player);
+								foreground = fov.visibleColor(p, player);
+								background = world.backgroundColor(p);
+							} else if (player.canDetect(p)) {
+								glyph = world.glyph(p, player);
+								foreground = Color.darkGray;
+							} else {
+								glyph = fov.tile(p).glyph();
+								foreground = Color.darkGray.darker();
+							}
+							if (glyph != snapshot.glyph(x, y) || !foreground.equals(snapshot.foreground(x, y))
+									|| !(background == null ? snapshot.background(x, y) == null : background.equals(snapshot.background(x, y))))
+								mismatches++;
+						}
+					}
+					expect(mismatches == 0, mismatches + " cells drawn differently at turn " + simulation.turns());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Stairs of worlds from {@linkplain WorldBuilder}: every pair of regions of neighboring levels that overlap must have a cell that is
+	 * down stairs above and up stairs below, and a lazy world loading its levels in random order must match the eager one.
+	 * Regions are labelled again from the finished levels, where everything but walls was floor of a kept region.
+	 * The stairs may continue the stairs from the level above, which then end on down stairs, only where the whole overlap is taken by them.
+	 */
+	private static Check stairs() {
+		return new Check("WorldBuilder stairs") {
+			/** Flags of a pair of regions: it has stairs, some not continuing stairs from above, and some overlap cells without stairs from above. */
+			static final int STAIRS = 1, OWN = 2, FREE = 4;
+			protected void run(Random random) {
+				int width = 90, height = 31, depth = 10;
+				long seed = random.nextLong();
+				World eager = new WorldBuilder(width, height, depth, seed).makeCaves().build();
+				World lazy = new WorldBuilder(width, height, depth, seed).buildLazy();
+				List<Integer> order = new ArrayList<Integer>();
+				for (int z=0; z<depth; z++)
+					order.add(z);
+				Collections.shuffle(order, random);
+				for (int z : order)
+					lazy.loadLevel(z);
+				int differences = 0;
+				for (int z=0; z<depth; z++)
+					for (int y=0; y<height; y++)
+						for (int x=0; x<width; x++)
+							if (eager.tile(x, y, z) != lazy.tile(x, y, z))
+								differences++;
+				expect(differences == 0, differences + " cells differ between the eager and the lazy world");
+
+				int[] upper = regions(eager, 0);
+				for (int z=0; z<depth-1; z++) {
+					int[] lower = regions(eager, z+1);
+					Map<Long, Integer> pairs = new HashMap<Long, Integer>();
+					for (int i=0; i<width*height; i++) {
+						if (upper[i] == 0 || lower[i] == 0)
+							continue;
+						int x = i % width, y = i / width;
+						boolean down = eager.tile(x, y, z) == Tile.STAIRS_DOWN;
+						boolean fromAbove = z > 0 && eager.tile(x, y, z-1) == Tile.STAIRS_DOWN;
+						Tile below = eager.tile(x, y, z+1);
+						int state = fromAbove ? 0 : FREE;
+						if (down && (below == Tile.STAIRS_UP || below == Tile.STAIRS_DOWN))
+							state |= fromAbove ? STAIRS : STAIRS | OWN;
+						pairs.merge((long) upper[i] << 32 | lower[i], state, (a, b) -> a | b);
+					}
+					int unconnected = 0, shared = 0;
+					for (int state : pairs.values()) {
+						if ((state & STAIRS) == 0)
+							unconnected++;
+						else if ((state & OWN) == 0 && (state & FREE) != 0)
+							shared++;
+					}
+					expect(unconnected == 0, unconnected + " of " + pairs.size() + " overlapping regions of levels " + z + " and " + (z+1) + " have no stairs");
+					expect(shared == 0, shared + " overlapping regions of levels " + z + " and " + (z+1) + " share stairs with the level above though they have free cells");
+					upper = lower;
+				}
+			}
+			/** Labels the 8-connected regions of cells of level {@code z} that aren't walls, starting at 1. Walls are 0. */
+			int[] regions(World world, int z) {
+				int width = world.width(), height = world.height();
+				int[] labels = new int[width * height];
+				int next = 0;
+				ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+				for (int start=0; start<labels.length; start++) {
+					if (labels[start] != 0 || world.tile(start % width, start / width, z) == Tile.WALL)
+						continue;
+					labels[start] = ++next;
+					queue.add(start);
+					while (!queue.isEmpty()) {
+						int cell = queue.poll();
+						for (int dx=-1; dx<2; dx++) {
+							for (int dy=-1; dy<2; dy++) {
+								int x = cell % width + dx, y = cell / width + dy;
+								if (x < 0 || y < 0 || x >= width || y >= height || labels[y*width + x] != 0 || world.tile(x, y, z) == Tile.WALL)
+									continue;
+								labels[y*width + x] = next;
+								queue.add(y*width + x);
+							}
+						}
+					}
+				}
+				return labels;
+			}
+		};
+	}
+
+	/** Digs or caves in {@code count} random cells of {@code world}. */
+	private static void digAndCaveIn(World world, Random random, int count) {
+		for (int i=0; i<count; i++) {
+			Point p = world.point(random.nextInt(world.width()), random.nextInt(world.height()), random.nextInt(world.depth()));
+			if (random.nextBoolean())
+				world.dig(p);
+			else
+				world.caveIn(p);
+		}
+	}
+
+}
@@ -13,6 +13,7 @@ public class AppletMain extends Applet implements KeyListener {
 	
 	private AsciiPanel terminal;
 	private Screen screen;
+	private Screen shownScreen;
 	
 	public AppletMain() {
 		super();
@@ -30,9 +31,13 @@ public class AppletMain extends Applet implements KeyListener {
 		requestFocusInWindow();
 	}
 	
+	/** Clears the terminal only when the screen changes, since a screen may write just the cells that changed since its last frame. */
 	public void repaint() {
 		super.repaint();
-		terminal.clear();
+		if (screen != shownScreen) {
+			terminal.clear();
+			shownScreen = screen;
+		}
 		screen.displayOutput(terminal);
 		terminal.repaint();
 	}
@@ -14,6 +14,7 @@ public class ApplicationMain extends JFrame implements KeyListener {
 	
 	private AsciiPanel terminal;
 	private Screen screen;
+	private Screen shownScreen;
 	
 	public ApplicationMain() {
 		super();
@@ -25,8 +26,12 @@ public class ApplicationMain extends JFrame implements KeyListener {
 		repaint();
 	}
 	
+	/** Clears the terminal only when the screen changes, since a screen may write just the cells that changed since its last frame. */
 	public void repaint() {
-		terminal.clear();
+		if (screen != shownScreen) {
+			terminal.clear();
+			shownScreen = screen;
+		}
 		screen.displayOutput(terminal);
 		super.repaint();
 	}
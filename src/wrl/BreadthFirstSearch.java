@@ -0,0 +1,151 @@
+package wrl;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first searches across the ground {@linkplain Tile}s of one level of a {@linkplain World}. Every step to one of the eight neighbors
+ * has the same cost, so cells are visited in order of the number of steps from the start without a priority queue.
+ * <br>The buffers are reused by every search: cells are queued in a ring buffer and marked visited by stamping them with the number of the search,
+ * so starting a search never clears or allocates anything once the buffers have grown to fit.
+ * @author Arun Sundaram
+ *
+ */
+public class BreadthFirstSearch {
+
+	/** Distance of cells that cannot reach any source. */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int[] DX = {-1, 0, 1, 1, 1, 0, -1, -1};
+	private static final int[] DY = {-1, -1, -1, 0, 1, 1, 1, 0};
+
+	private World world;
+	private int width;
+	private int height;
+
+	/** Number of the search each cell was last visited by, indexed as {@code y*width + x}. */
+	private int[] stamps;
+	private int search;
+	/** Cells waiting to be visited. Its length is a power of two. */
+	private int[] queue = new int[64];
+	private int head;
+	private int size;
+	/** {@code true} while a search is running, so a predicate that searches again can be detected. */
+	private boolean busy;
+
+	/** @param world - the {@linkplain World} whose levels are searched */
+	public BreadthFirstSearch(World world) {
+		this.world = world;
+		this.width = world.width();
+		this.height = world.height();
+		this.stamps = new int[width * height];
+	}
+
+	/** Returns {@code true} if a search is running. */
+	public boolean busy() { return busy; }
+
+	/**
+	 * Searches outward from ({@code x}, {@code y}) on level {@code z} for the closest cell that satisfies {@code validCell}, crossing only ground cells
+	 * within {@code range} of the start. The start is tested first even if it isn't ground. Neighbors are queued starting from direction {@code rotation}
+	 * so ties between cells the same number of steps away can be broken at random.
+	 * @return the cell found as {@code y*width + x}, or {@code -1} if there is none in range
+	 */
+	public int nearest(int x, int y, int z, double range, CellPredicate validCell, int rotation) {
+		if (validCell.test(x, y, z))
+			return y*width + x;
+		if (!world.isInBounds(x, y, z))
+			return -1;
+		begin(range);
+		try {
+			double rangeSquared = range * range;
+			stamps[y*width + x] = search;
+			push(y*width + x);
+			while (size > 0) {
+				int cell = pop();
+				int cx = cell % width, cy = cell / width;
+				for (int i=0; i<8; i++) {
+					int d = (i + rotation) & 7;
+					int nx = cx + DX[d], ny = cy + DY[d];
+					if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+						continue;
+					int neighbor = ny*width + nx;
+					if (stamps[neighbor] == search)
+						continue;
+					stamps[neighbor] = search;
+					int dx = nx - x, dy = ny - y;
+					if (dx*dx + dy*dy > rangeSquared || !world.isGround(nx, ny, z))
+						continue;
+					if (validCell.test(nx, ny, z))
+						return neighbor;
+					push(neighbor);
+				}
+			}
+			return -1;
+		} finally {
+			busy = false;
+		}
+	}
+
+	/**
+	 * Fills {@code distances} with the number of steps from every cell of level {@code z} to the closest source across ground cells.
+	 * Sources are the ground cells that satisfy {@code source} and have a distance of {@code 0}. Cells that cannot reach a source are {@linkplain #UNREACHABLE}.
+	 * @param distances - an array of {@code width*height} entries indexed as {@code y*width + x}
+	 */
+	public void distances(int z, CellPredicate source, int[] distances) {
+		Arrays.fill(distances, UNREACHABLE);
+		begin(Math.max(width, height));
+		try {
+			for (int y=0; y<height; y++) {
+				for (int x=0; x<width; x++) {
+					if (world.isGround(x, y, z) && source.test(x, y, z)) {
+						distances[y*width + x] = 0;
+						push(y*width + x);
+					}
+				}
+			}
+			while (size > 0) {
+				int cell = pop();
+				int cx = cell % width, cy = cell / width;
+				int next = distances[cell] + 1;
+				for (int i=0; i<8; i++) {
+					int nx = cx + DX[i], ny = cy + DY[i];
+					if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+						continue;
+					int neighbor = ny*width + nx;
+					if (distances[neighbor] != UNREACHABLE || !world.isGround(nx, ny, z))
+						continue;
+					distances[neighbor] = next;
+					push(neighbor);
+				}
+			}
+		} finally {
+			busy = false;
+		}
+	}
+
+	/** Starts a new search whose cells are all within {@code range} of its start, growing the queue to hold them. */
+	private void begin(double range) {
+		busy = true;
+		head = 0;
+		size = 0;
+		if (++search == 0) {
+			Arrays.fill(stamps, 0);
+			search = 1;
+		}
+		long side = 2 * (long) Math.ceil(range) + 1;
+		int needed = (int) Math.min(stamps.length, side * side);
+		if (queue.length < needed)
+			queue = new int[Integer.highestOneBit(needed - 1) << 1];
+	}
+
+	private void push(int cell) {
+		queue[(head + size++) & (queue.length - 1)] = cell;
+	}
+
+	private int pop() {
+		int cell = queue[head];
+		head = (head + 1) & (queue.length - 1);
+		size--;
+		return cell;
+	}
+
+}
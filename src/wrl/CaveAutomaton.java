@@ -0,0 +1,96 @@
+package wrl;
+
+/**
+ * A <a href="https://en.wikipedia.org/wiki/Life-like_cellular_automaton">life-like cellular automaton</a> used to smooth random noise into caves.
+ * Cells are {@code 1} for floor (alive) and {@code 0} for wall. Cells outside the grid count as wall.
+ * <br>A dead cell becomes alive if its number of living neighbors is in the birth set, and a living cell stays alive if it is in the survival set.
+ * Rules are written as in {@code "B5678/S45678"}, the default cave rule.
+ * <br>Each generation is written into a second buffer, and neighbors are counted with running column and row sums, so a cell costs
+ * a constant number of operations.
+ * @author Arun Sundaram
+ *
+ */
+public class CaveAutomaton {
+
+	/** Floor becomes or stays floor when most of its 3x3 neighborhood is floor. */
+	public static final CaveAutomaton CAVES = parse("B5678/S45678");
+
+	private int birth;
+	private int survival;
+
+	/**
+	 * @param birth - bit {@code n} is set if a wall with {@code n} floor neighbors becomes floor
+	 * @param survival - bit {@code n} is set if a floor with {@code n} floor neighbors stays floor
+	 */
+	public CaveAutomaton(int birth, int survival) {
+		this.birth = birth;
+		this.survival = survival;
+	}
+
+	/** Creates an automaton from a rule such as {@code "B5678/S45678"}. */
+	public static CaveAutomaton parse(String rule) {
+		String[] parts = rule.toUpperCase().split("/");
+		if (parts.length != 2 || !parts[0].startsWith("B") || !parts[1].startsWith("S"))
+			throw new IllegalArgumentException("Rule must look like B5678/S45678: " + rule);
+		return new CaveAutomaton(mask(parts[0].substring(1)), mask(parts[1].substring(1)));
+	}
+
+	/** Returns a bit mask with the bit for each digit in {@code counts} set. */
+	private static int mask(String counts) {
+		int mask = 0;
+		for (char c : counts.toCharArray()) {
+			if (c < '0' || c > '8')
+				throw new IllegalArgumentException("Neighbor counts must be between 0 and 8: " + counts);
+			mask |= 1 << (c - '0');
+		}
+		return mask;
+	}
+
+	/**
+	 * Runs {@code iterations} generations over a {@code width} by {@code height} grid.
+	 * @param cells - the first generation, indexed as {@code y*width + x}; it may be overwritten
+	 * @return the final generation, which is either {@code cells} or a new array
+	 */
+	public byte[] run(byte[] cells, int width, int height, int iterations) {
+		byte[] current = cells;
+		byte[] next = new byte[cells.length];
+		int[] columns = new int[width + 3];
+		for (int i=0; i<iterations; i++) {
+			step(current, next, width, height, columns);
+			byte[] swap = current;
+			current = next;
+			next = swap;
+		}
+		return current;
+	}
+
+	/**
+	 * Writes the generation after {@code source} into {@code target}.
+	 * {@code columns} holds the living cells in the three rows centered on the current row for each column, padded by one empty column on the left and two on the right.
+	 */
+	private void step(byte[] source, byte[] target, int width, int height, int[] columns) {
+		for (int x=0; x<width; x++)
+			columns[x + 1] = source[x] + (height > 1 ? source[width + x] : 0);
+
+		for (int y=0; y<height; y++) {
+			int row = y*width;
+			int window = columns[0] + columns[1] + columns[2];
+			for (int x=0; x<width; x++) {
+				int self = source[row + x];
+				int neighbors = window - self;
+				int rule = self == 1 ? survival : birth;
+				target[row + x] = (byte) ((rule >>> neighbors) & 1);
+				window += columns[x + 3] - columns[x];
+			}
+			if (y + 1 < height) {
+				for (int x=0; x<width; x++) {
+					if (y > 0)
+						columns[x + 1] -= source[row - width + x];
+					if (y + 2 < height)
+						columns[x + 1] += source[row + 2*width + x];
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package wrl;
+
+/**
+ * A condition on a cell of a {@linkplain World} given by its coordinates, so searches can test cells without creating {@linkplain Point}s.
+ * @author Arun Sundaram
+ *
+ */
+@FunctionalInterface
+public interface CellPredicate {
+
+	/** Returns {@code true} if the cell ({@code x}, {@code y}, {@code z}) meets the condition. */
+	public boolean test(int x, int y, int z);
+
+}
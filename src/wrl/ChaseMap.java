@@ -0,0 +1,120 @@
+package wrl;
+
+import java.util.Arrays;
+
+/**
+ * A <a href="http://www.roguebasin.com/index.php/The_Incredible_Power_of_Dijkstra_Maps">Dijkstra map</a href> of the number of steps
+ * from each ground {@linkplain Tile} on a level to a target {@linkplain Creature}.
+ * The map is rebuilt only when the target moves or the level's tiles change, so every creature hunting the same target shares one search.
+ * Creatures are ignored when building the map; they are handled when choosing a step.
+ * @author Arun Sundaram
+ *
+ */
+public class ChaseMap {
+
+	/** Distance of cells that cannot reach the target. */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int[] DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+	private static final int[] DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+	private World world;
+	private Creature target;
+
+	private int[] distance;
+	private int[] queue;
+
+	private int targetX;
+	private int targetY;
+	private int targetZ;
+	private int tileVersion;
+
+	/**
+	 * @param world - the {@linkplain World} the map describes
+	 * @param target - the {@linkplain Creature} the map leads to
+	 */
+	public ChaseMap(World world, Creature target) {
+		this.world = world;
+		this.target = target;
+		this.distance = new int[world.width() * world.height()];
+		this.queue = new int[distance.length];
+		this.targetZ = -1;
+	}
+
+	/** Returns the level the map was last built on. */
+	public int z() { return targetZ; }
+
+	/** Returns the number of steps from ({@code x}, {@code y}) to the target or {@linkplain #UNREACHABLE}. */
+	public int distance(int x, int y) {
+		if (x < 0 || x >= world.width() || y < 0 || y >= world.height())
+			return UNREACHABLE;
+		return distance[y*world.width() + x];
+	}
+
+	/** Rebuilds the map if the target has moved or the tiles of its level have changed since the last build. */
+	public void refresh() {
+		int z = target.z();
+		if (z == targetZ && target.x() == targetX && target.y() == targetY && world.tileVersion(z) == tileVersion)
+			return;
+		targetX = target.x();
+		targetY = target.y();
+		targetZ = z;
+		Arrays.fill(distance, UNREACHABLE);
+		if (!world.isInBounds(targetX, targetY, targetZ))
+			return;
+		tileVersion = world.tileVersion(z);
+		build();
+	}
+
+	/** Breadth first search outward from the target across ground tiles. */
+	private void build() {
+		int width = world.width(), height = world.height();
+		int head = 0, tail = 0;
+		int start = targetY*width + targetX;
+		distance[start] = 0;
+		queue[tail++] = start;
+		while (head < tail) {
+			int cell = queue[head++];
+			int x = cell % width, y = cell / width;
+			int next = distance[cell] + 1;
+			for (int i=0; i<8; i++) {
+				int nx = x + DX[i], ny = y + DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int neighbor = ny*width + nx;
+				if (distance[neighbor] != UNREACHABLE || !world.isGround(nx, ny, targetZ))
+					continue;
+				distance[neighbor] = next;
+				queue[tail++] = neighbor;
+			}
+		}
+	}
+
+	/**
+	 * Returns the neighbor of the {@code creature} that is closest to the target and can be entered, packed as {@code y*width + x}.
+	 * The target's own cell is always a valid step. Returns {@code -1} if the creature is on another level, cannot reach the target,
+	 * or every closer neighbor is blocked.
+	 */
+	public int nextStep(Creature creature) {
+		refresh();
+		if (creature.z() != targetZ)
+			return -1;
+		int x = creature.x(), y = creature.y();
+		int best = distance(x, y);
+		if (best == UNREACHABLE)
+			return -1;
+		int step = -1;
+		for (int i=0; i<8; i++) {
+			int nx = x + DX[i], ny = y + DY[i];
+			int d = distance(nx, ny);
+			if (d >= best)
+				continue;
+			if (d != 0 && !creature.canEnter(nx, ny, targetZ))
+				continue;
+			best = d;
+			step = ny*world.width() + nx;
+		}
+		return step;
+	}
+
+}
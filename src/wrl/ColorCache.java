@@ -0,0 +1,92 @@
+package wrl;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Caches derived {@linkplain Color}s, such as averaged backgrounds, under a non-negative {@code long} key chosen by the caller,
+ * so they are created once instead of every frame. Looking up a cached color allocates nothing.
+ * <br>Keys are stored by open addressing. The cache is emptied if it grows past {@linkplain #MAX_SIZE} colors.
+ * @author Arun Sundaram
+ *
+ */
+public class ColorCache {
+
+	private static final long EMPTY = -1L;
+	private static final int MAX_SIZE = 1 << 16;
+
+	private long[] keys;
+	private Color[] colors;
+	private int size;
+
+	public ColorCache() {
+		keys = new long[64];
+		colors = new Color[64];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/** Returns the color stored under {@code key} or {@code null} if there is none. */
+	public Color get(long key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return colors[i];
+		return null;
+	}
+
+	/** Stores {@code color} under {@code key} and returns it. */
+	public Color put(long key, Color color) {
+		if (key < 0)
+			throw new IllegalArgumentException("Keys must not be negative: " + key);
+		if (size >= MAX_SIZE)
+			clear();
+		if (2 * (size + 1) > keys.length)
+			grow();
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		if (keys[i] == EMPTY)
+			size++;
+		keys[i] = key;
+		colors[i] = color;
+		return color;
+	}
+
+	/** Returns an opaque color with the passed components, creating it only the first time. */
+	public Color rgb(int red, int green, int blue) {
+		long key = (red << 16) | (green << 8) | blue;
+		Color color = get(key);
+		return color != null ? color : put(key, new Color(red, green, blue));
+	}
+
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(colors, null);
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Color[] oldColors = colors;
+		keys = new long[oldKeys.length * 2];
+		colors = new Color[oldColors.length * 2];
+		Arrays.fill(keys, EMPTY);
+		int mask = keys.length - 1;
+		for (int j=0; j<oldKeys.length; j++) {
+			if (oldKeys[j] == EMPTY)
+				continue;
+			int i = slot(oldKeys[j], mask);
+			while (keys[i] != EMPTY)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			colors[i] = oldColors[j];
+		}
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+}
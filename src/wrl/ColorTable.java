@@ -0,0 +1,116 @@
+package wrl;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A lookup table of blends between two {@linkplain Color}s, shared by every {@linkplain FieldOfView} and by {@linkplain Tile#blend(Color, Color, double)}.
+ * Each pair of colors and number of levels is given an id the first time it is blended. The row for that id holds the blend at each level
+ * and is filled in as levels are used, so a repeated blend is a table lookup that creates no {@code Color}.
+ * <br>The table is emptied if it grows past {@linkplain #MAX_ROWS} rows.
+ * @author Arun Sundaram
+ *
+ */
+public class ColorTable {
+
+	private static final long EMPTY = -1L;
+	private static final int MAX_ROWS = 1 << 14;
+
+	/** Open addressing map from a pair of colors and their levels to an id. */
+	private static long[] keys = emptyKeys(64);
+	private static int[] ids = new int[64];
+	/** Blends of each id, indexed by level. */
+	private static Color[][] rows = new Color[32][];
+	private static int size;
+
+	private ColorTable() { }
+
+	/**
+	 * Returns {@code c1} blended into {@code c2} by {@code level/levels}. Level {@code 0} is {@code c2} and level {@code levels} is {@code c1}.
+	 * Levels above {@code levels} push past {@code c1}. Each channel is clamped to [0, 256).
+	 * @param level - non-negative blend level
+	 * @param levels - levels from {@code c2} to {@code c1}, below {@code 2^15}
+	 */
+	public static synchronized Color blend(Color c1, Color c2, int level, int levels) {
+		if (level < 0 || levels <= 0 || levels >= 1 << 15)
+			throw new IllegalArgumentException("Invalid blend level " + level + " of " + levels);
+		int id = id((c1.getRGB() & 0xFFFFFFL) << 39 | (c2.getRGB() & 0xFFFFFFL) << 15 | levels);
+		Color[] row = rows[id];
+		if (level >= row.length)
+			rows[id] = row = Arrays.copyOf(row, Math.max(level + 1, 2 * row.length));
+		if (row[level] == null)
+			row[level] = mix(c1, c2, level, levels);
+		return row[level];
+	}
+
+	/** Computes a blend for the table. */
+	private static Color mix(Color c1, Color c2, int level, int levels) {
+		int red = (c1.getRed() - c2.getRed()) * level / levels;
+		int green = (c1.getGreen() - c2.getGreen()) * level / levels;
+		int blue = (c1.getBlue() - c2.getBlue()) * level / levels;
+		return new Color(
+				Math.min(255, Math.max(0, red 	+ 	c2.getRed())),
+				Math.min(255, Math.max(0, green + 	c2.getGreen())),
+				Math.min(255, Math.max(0, blue 	+ 	c2.getBlue())));
+	}
+
+	/** Returns the id of {@code key}, giving it a new row if it has none. */
+	private static int id(long key) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for (; keys[i] != EMPTY; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return ids[i];
+
+		if (size >= MAX_ROWS) {
+			clear();
+			return id(key);
+		}
+		if (2 * (size + 1) > keys.length) {
+			grow();
+			return id(key);
+		}
+		if (size == rows.length)
+			rows = Arrays.copyOf(rows, 2 * size);
+		keys[i] = key;
+		ids[i] = size;
+		rows[size] = new Color[8];
+		return size++;
+	}
+
+	private static void clear() {
+		keys = emptyKeys(64);
+		ids = new int[64];
+		rows = new Color[32][];
+		size = 0;
+	}
+
+	private static void grow() {
+		long[] oldKeys = keys;
+		int[] oldIds = ids;
+		keys = emptyKeys(oldKeys.length * 2);
+		ids = new int[oldIds.length * 2];
+		int mask = keys.length - 1;
+		for (int j=0; j<oldKeys.length; j++) {
+			if (oldKeys[j] == EMPTY)
+				continue;
+			int i = slot(oldKeys[j], mask);
+			while (keys[i] != EMPTY)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			ids[i] = oldIds[j];
+		}
+	}
+
+	private static long[] emptyKeys(int length) {
+		long[] keys = new long[length];
+		Arrays.fill(keys, EMPTY);
+		return keys;
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+}
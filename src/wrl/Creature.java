@@ -18,7 +18,10 @@ public class Creature extends Entity implements ObserverFOV {
 	
 	private CreatureAI ai;
 	/** Sets the {@linkplain CreatureAI} for this creature. */
-	public void setCreatureAI (CreatureAI ai) { this.ai = ai; }
+	public void setCreatureAI (CreatureAI ai) {
+		this.ai = ai;
+		world.updateListener(this);
+	}
 	/** Returns the ai controlling this creature. */
 	public CreatureAI ai() { return ai; }
 
@@ -82,13 +85,12 @@ public class Creature extends Entity implements ObserverFOV {
     
     private int actionPoints;
     public int ap() { return actionPoints; }
-    /** Modifies AP by {@code amount} inversely modified by speed. If amount is non-zero the creature is re-added to the {@linkplain EventOrganizer} queue. */
+    /** Modifies AP by {@code amount} inversely modified by speed. If amount is non-zero the creature is reordered in the {@linkplain EventOrganizer} queue. */
     public void modifyAP(int amount) { 
     	if (amount != 0 ) {
-    		world.cancelUpdate(this);
     		amount = (int) ( amount * (100.00 / Math.max(10, speed)) );
     		actionPoints += amount;
-    		world.scheduleUpdate(this);
+    		world.rescheduleUpdate(this);
     	}
     }
     public void refreshAP() {
@@ -244,6 +246,9 @@ public class Creature extends Entity implements ObserverFOV {
 	/** Returns the currently worn armor {@linkplain Item}. */
 	public Item armor() { return armor; }
 	
+	/** Slot assigned to this creature by the {@linkplain World}'s {@linkplain CreatureIndex}, or {@code -1} if not indexed. */
+	int indexSlot = -1;
+	
 	/**
 	 * @param world - the {@linkplain World} this creature inhabits
 	 * @param name - name of this creature
@@ -305,6 +310,21 @@ public class Creature extends Entity implements ObserverFOV {
 	
 	public boolean updatePending() { return !isDead(); }
 	
+	/**
+	 * Updates active {@linkplain Effect}s and regenerates health and mana as if {@code rounds} AP refreshes had passed, then lets the AI catch up.
+	 * Effects are updated once per round, so they run out on time and their damage still applies while the level is frozen.
+	 */
+	public void fastForward(int rounds) {
+		for (int i=0; i<rounds && (hp < maxHP || mana < maxMana || !effects.isEmpty()); i++) {
+			updateEffects();
+			if (isDead())
+				return;
+			regenerateHealth();
+			regenerateMana();
+		}
+		ai.fastForward(rounds);
+	}
+	
 	public FieldOfView updateFOV() {
 		return null;
 	}
@@ -372,7 +392,7 @@ public class Creature extends Entity implements ObserverFOV {
 	 * @see World#dig(Point)*/
 	public void dig(int wx, int wy) {
 		modifyFood(-10);
-		world.dig( new Point(wx, wy, z()));
+		world.dig(world.point(wx, wy, z()));
 		doAction("dig");
 		modifyAP(digCost);
 	}
@@ -408,7 +428,7 @@ public class Creature extends Entity implements ObserverFOV {
 		modifyFood(-1);
 		
 		int amount = Math.max(0, attack - other.defenseValue());
-		amount = (int) (Math.random() * amount) + 1;
+		amount = (int) (world.random().nextDouble() * amount) + 1;
 		
 		Object[] params2 = new Object[params.length +1];
 		for (int i=0; i<params.length; i++) params2[i] = params[i];
@@ -512,20 +532,24 @@ public class Creature extends Entity implements ObserverFOV {
 		}
 	}
 	
+	/** Walks the lines of knockbacks and throws. */
+	private LineWalker line = new LineWalker();
+	
 	/** Calculates and a applies a knockback effect from a sources {@linkplain Point}. */
 	public void knockBack(Point source, double distance) {
 		if (isDead())
 			return;
-		Point dif = location().subtract(source);
-		Line line = new Line(x(), y(), x() + 2*dif.x, y() + 2*dif.y, z());
+		int dx = x() - source.x, dy = y() - source.y;
+		line.reset(x(), y(), x() + 2*dx, y() + 2*dy);
 		
 		Point newLoc = null;
-		for (Point p : line) {
-			if (p.equals(location()))
+		while (line.next()) {
+			int lx = line.x(), ly = line.y();
+			if (lx == x() && ly == y())
 				continue;
-			if (distance < 0 || !world.tile(p).isGround() || world.creature(p) != null)
+			if (distance < 0 || !world.isGround(lx, ly, z()) || world.creature(lx, ly, z()) != null)
 				break;
-			newLoc = p;
+			newLoc = world.point(lx, ly, z());
 			distance--;
 		}
 		
@@ -586,6 +610,11 @@ public class Creature extends Entity implements ObserverFOV {
 		}
 		
 		Point next = location().add(0, 0, mz);
+		Tile here = world.tile(location());
+		if (mz == 1 && here == Tile.STAIRS_DOWN || mz == -1 && here == Tile.STAIRS_UP) {
+			world.loadLevel(next.z);
+			world.thawLevel(next.z);
+		}
 		Tile tile = world.tile(location().add(mx, my, mz));
 		
 		if (mz == -1){
@@ -771,7 +800,9 @@ public class Creature extends Entity implements ObserverFOV {
 	/** Throws an {@linkplain Item} towards the location potentially attacking a creature. Will drop Item or break it if it's fragile.*/
 	public void throwItem(Item item, Point target) {
 		Point end = location();
-		for (Point point : new Line(x(), y(), target.x, target.y, target.z)) {
+		line.reset(x(), y(), target.x, target.y);
+		while (line.next()) {
+			Point point = world.point(line.x(), line.y(), target.z);
 			if (!tile(point).isGround())
 				break;
 			end = point;
@@ -814,7 +845,7 @@ public class Creature extends Entity implements ObserverFOV {
 			doAction("attempt to cast %s but don't have enough mana", spell.name());
 			return;
 		}
-		spell.apply(new Point(x2, y2, z()), splash, world, this);
+		spell.apply(world.point(x2, y2, z()), splash, world, this);
 		modifyMana(-spell.manaCost());
 		modifyAP(spellCost);	
 	}
@@ -825,17 +856,18 @@ public class Creature extends Entity implements ObserverFOV {
 	 * @param params - parameters to format into message
 	 */
 	public void doAction(String message, Object ... params) {
-		for (Creature other : creaturesWhoSeeMe()) {
-			if (other == this)
-				notify("You " + message + ".", params);
-			else
-				other.notify(String.format("The %s %s.", name, Grammar.makeThirddPerson(message)), params);
+		List<Creature> listeners = world.listeners(z());
+		for (int i=0; i<listeners.size(); i++) {
+			Creature other = listeners.get(i);
+			if (!isNoticedBy(other))
+				continue;
+			other.ai.onNotify(Message.action(other == this ? null : name, message, params));
 		}
 	}
 	
 	/**
 	 * Distributes a notification from creature to itself and those who can see it.
-	 * The item passed will be identified if its name is unknown.
+	 * The item passed will be identified if its name is unknown, so every creature in range is visited rather than only listeners.
 	 * @param item - Item with learnable name
 	 * @param message - text to display
 	 * @param params - parameters to format into message
@@ -846,34 +878,32 @@ public class Creature extends Entity implements ObserverFOV {
 		//TODO resolve with overload. Checks if dead because you can't learn effect from dead.
 		
 		for (Creature other : creaturesWhoSeeMe()) {
-			if (other == this)
-				notify("You " + message + ".", params);
-			else
-				other.notify(String.format("The %s %s.", name, Grammar.makeThirddPerson(message)), params);
+			if (other.ai().listens())
+				other.ai.onNotify(Message.action(other == this ? null : name, message, params));
 			if (item != null)
 				other.learnName(item);
 		}
 	}
 	
-	// TODO rewrite this... maybe use for (Creature c : floor.creatures) if (c.canSee(this.location())) others.add(c);
 	/** Returns a list of Creatures  around this creature in a circle of radius 9 */
 	public List<Creature> creaturesWhoSeeMe() {
 		List<Creature> others = new ArrayList<Creature>();
-		int r = 9;
-		for (int ox = -r ; ox <= r; ox++) {
-			for (int oy = -r; oy <= r; oy++) {
-				if (ox*ox + oy*oy > r*r)
-					continue;
-				
-				Creature other = world.creature(location().add(ox, oy, 0));
-				if (other == null)
-					continue;
+		for (Creature other : world.creatures(z())) {
+			if (isNoticedBy(other))
 				others.add(other);
-			}
 		}
 		return others;
 	}
 	
+	/** Radius of the circle in which creatures notice this creature's actions. */
+	private static final int NOTICE_RADIUS = 9;
+	
+	/** Returns {@code true} if {@code other} is on this creature's level, within {@link #NOTICE_RADIUS} and still occupying its cell. */
+	private boolean isNoticedBy(Creature other) {
+		int ox = other.x() - x(), oy = other.y() - y();
+		return other.z() == z() && ox*ox + oy*oy <= NOTICE_RADIUS*NOTICE_RADIUS && world.creature(other.x(), other.y(), other.z()) == other;
+	}
+	
 	// Level up option methods
 	public void gaimMaxHP() {
 		maxHP += 10;
@@ -955,7 +985,12 @@ public class Creature extends Entity implements ObserverFOV {
 	
 	/** Returns {@code true} if could enter this location. */
 	public boolean canEnter(Point p) {
-		return world.tile(p).isGround() && world.creature(p) == null;
+		return canEnter(p.x, p.y, p.z);
+	}
+	
+	/** Returns {@code true} if the tile at ({@code x}, {@code y}, {@code z}) is ground and unoccupied. */
+	public boolean canEnter(int x, int y, int z) {
+		return world.isGround(x, y, z) && world.creature(x, y, z) == null;
 	}
 
 	/** Returns {@code true} if the {@linkplain Item} is equipped by this creature. */
@@ -964,12 +999,13 @@ public class Creature extends Entity implements ObserverFOV {
 	}
 	
 	/** 
-	 * Formats a message as a String that is passed onto {@linkplain CreatureAI#notify(String)} 
+	 * Passes a {@linkplain Message} onto {@linkplain CreatureAI#onNotify(Message)} if the AI listens. It is formatted only if displayed.
 	 * @param message - text to display
 	 * @param params - parameters to format into message
 	 */
 	public void notify(String message, Object ... params) {
-		ai.onNotify(String.format(message, params));
+		if (ai.listens())
+			ai.onNotify(Message.of(message, params));
 	}
 	
 	public Color background() {
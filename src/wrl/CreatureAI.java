@@ -1,8 +1,9 @@
 package wrl;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.function.Consumer;
 
 /**
@@ -45,11 +46,16 @@ public class CreatureAI {
 		}
 	}
 	
+	/** Returns the random source of the {@linkplain World} this creature inhabits. */
+	protected Random random() {
+		return creature.world().random();
+	}
+	
 	/** Randomly chooses to move or stay, avoids moving into {@linkplain Creature}s of same type. */
 	public void wander() {
-		int mx = (int) (Math.random() * 3) - 1;
-		int my = (int) (Math.random() * 3) - 1;
-		Creature other = creature.creature(new Point(creature.x()+mx, creature.y() + my, creature.z()));
+		int mx = random().nextInt(3) - 1;
+		int my = random().nextInt(3) - 1;
+		Creature other = creature.creature(creature.world().point(creature.x()+mx, creature.y() + my, creature.z()));
 		if (other != null && other.glyph() == creature.glyph()) {
 			creature.stay();
 		} else {
@@ -60,8 +66,14 @@ public class CreatureAI {
 	/** Determines what to do when the {@linkplain Creature} updates. */
 	public void onUpdate() { }
 	
+	/** Catches up on {@code rounds} skipped updates after the {@linkplain Creature} was frozen. Does nothing by default. */
+	public void fastForward(int rounds) { }
+	
 	/** Determines what occurs when this is notified. */
-	public void onNotify(String message) { }
+	public void onNotify(Message message) { }
+	
+	/** Returns {@code true} if {@linkplain #onNotify(Message)} does anything. Only listeners are sent messages. */
+	public boolean listens() { return false; }
 	
 	/** Determines what the creature does once it levels up.
 	 * @see LevelUpController */
@@ -78,17 +90,62 @@ public class CreatureAI {
 		this.deathDrop = deathDrop;
 	}
 	
-	/** Return true if location {@code p} can be seen unobstructed within the vision radius. */
+	/** Cells around {@linkplain #sightX}, {@linkplain #sightY} whose line of sight has been traced, as a bitset over the square of side {@code 2r+1}. */
+	private long[] sightKnown;
+	/** Traced cells that are visible, indexed as {@linkplain #sightKnown}. */
+	private long[] sightVisible;
+	private int sightX, sightY, sightZ = -1, sightRadius = -1, sightVersion;
+	/** Walks the lines of sight traced by {@linkplain #hasLineOfSight(World, int, int, int)}. */
+	private LineWalker sightLine = new LineWalker();
+	
+	/** Return true if location {@code p} can be seen unobstructed within the vision radius.
+	 * Results are memoized per cell until the creature moves, its vision radius changes or the tiles of its level change. */
 	public boolean canSee(Point p) {
 		if (creature.z() != p.z)
 			return false;
-		if ((creature.x()-p.x)*(creature.x()-p.x) + (creature.y()-p.y)*(creature.y()-p.y) > creature.visionRadius()*creature.visionRadius()) 
+		int r = creature.visionRadius();
+		int dx = p.x - creature.x(), dy = p.y - creature.y();
+		if (dx*dx + dy*dy > r*r) 
 			return false;
 		
-		for (Point point : new Line(creature.x(), creature.y(), p.x, p.y).getPoints()) {
-			if (creature.realTile( new Point(point.x, point.y, p.z) ).isGround() || (point.x == p.x && point.y == p.y) )
-				continue;
-			return false;
+		World world = creature.world();
+		if (sightX != creature.x() || sightY != creature.y() || sightZ != p.z || sightRadius != r || sightVersion != world.tileVersion(p.z))
+			resetSight(world, r);
+		
+		int side = 2*r + 1;
+		int i = (dy + r)*side + (dx + r);
+		long bit = 1L << (i & 63);
+		if ((sightKnown[i >>> 6] & bit) == 0) {
+			sightKnown[i >>> 6] |= bit;
+			if (hasLineOfSight(world, p.x, p.y, p.z))
+				sightVisible[i >>> 6] |= bit;
+		}
+		return (sightVisible[i >>> 6] & bit) != 0;
+	}
+	
+	/** Forgets memoized sight results and records the state they will be valid for. */
+	private void resetSight(World world, int r) {
+		int words = ((2*r + 1)*(2*r + 1) + 63) >>> 6;
+		if (sightRadius != r || sightKnown == null) {
+			sightKnown = new long[words];
+			sightVisible = new long[words];
+		} else {
+			Arrays.fill(sightKnown, 0);
+			Arrays.fill(sightVisible, 0);
+		}
+		sightX = creature.x();
+		sightY = creature.y();
+		sightZ = creature.z();
+		sightRadius = r;
+		sightVersion = world.tileVersion(sightZ);
+	}
+	
+	/** Walks the line to ({@code x1}, {@code y1}) and returns {@code true} if every tile before the end is ground. Uses the same steps as {@linkplain Line}. */
+	private boolean hasLineOfSight(World world, int x1, int y1, int z) {
+		sightLine.reset(creature.x(), creature.y(), x1, y1);
+		while (sightLine.next() && !sightLine.atEnd()) {
+			if (!world.isGround(sightLine.x(), sightLine.y(), z))
+				return false;
 		}
 		return true;
 	}
@@ -131,24 +188,41 @@ public class CreatureAI {
 		return creature.item(creature.location()) != null && !creature.inventory().isFull();
 	}
 	
+	/** Move towards a {@code target} creature to attack by descending its shared {@linkplain ChaseMap}.
+	 * Falls back to {@linkplain #hunt(Point)} if no closer step can be entered. */
+	public void hunt (Creature target) {
+		int step = creature.world().chaseMap(target).nextStep(creature);
+		if (step < 0) {
+			hunt(target.location());
+			return;
+		}
+		int width = creature.world().width();
+		creature.moveBy(step % width - creature.x(), step / width - creature.y(), 0);
+		
+		if (creature.x() == target.x() && creature.y() == target.y() && creature.z() == target.z())
+			destination = null;
+		else
+			destination = target.location();
+	}
+	
 	/** Move towards a {@code target} to attack. */
 	public void hunt (Point target) {
-		List<Point> points = new Path(creature, target.x, target.y).points();
-		if (points == null || points.isEmpty()) {
+		Path path = new Path(creature, target.x, target.y);
+		if (path.size() == 0) {
 			if (target.equals(destination))
 					destination = null;
 			wander();
 			return;
 		}
-		int mx = points.get(0).x - creature.x();
-		int my = points.get(0).y - creature.y();
+		int mx = path.x(0) - creature.x();
+		int my = path.y(0) - creature.y();
 		
 		creature.moveBy(mx, my, 0);
 		
 		if (creature.location().equals(target))
 			destination = null;
 		else
-			destination = new Point(target);
+			destination = target;
 			
 	}
 	
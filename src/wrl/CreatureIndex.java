@@ -0,0 +1,206 @@
+package wrl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code CreatureIndex} class tracks which {@linkplain Creature} occupies each cell of a {@linkplain World}.
+ * Each indexed creature is given a slot id which is stored in a dense per-cell array, so lookups by location never allocate or hash.
+ * The array of a level is only allocated once a creature enters it and can be released when the level is empty.
+ * The creatures on each level are also kept in a list for iteration without scanning the map, and those whose {@linkplain CreatureAI#listens()}
+ * in a second list so notifications only visit creatures that respond to them.
+ * @author Arun Sundaram
+ *
+ */
+public class CreatureIndex {
+
+	private static final int EMPTY = -1;
+
+	private int width;
+	private int height;
+	private int depth;
+
+	/** Slot id of the creature at each cell of each level, indexed as {@code y*width + x}. {@code null} for levels never entered. */
+	private int[][] cells;
+
+	private Creature[] slots;
+	/** Cell each slot is recorded at, as {@code (z*height + y)*width + x}. */
+	private int[] slotCell;
+	/** Position of each slot in its level list. */
+	private int[] slotPosition;
+	/** Whether each slot is on its level's listener list. */
+	private boolean[] slotListens;
+	private int[] freeSlots;
+	private int freeCount;
+	private int slotCount;
+
+	private List<List<Creature>> levels;
+	private List<List<Creature>> listeners;
+
+	/**
+	 * @param width - width of the world
+	 * @param height - height of the world
+	 * @param depth - number of levels in the world
+	 */
+	public CreatureIndex(int width, int height, int depth) {
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.cells = new int[depth][];
+		this.slots = new Creature[64];
+		this.slotCell = new int[64];
+		this.slotPosition = new int[64];
+		this.slotListens = new boolean[64];
+		this.freeSlots = new int[64];
+		this.levels = new ArrayList<List<Creature>>(depth);
+		this.listeners = new ArrayList<List<Creature>>(depth);
+		for (int z=0; z<depth; z++) {
+			levels.add(new ArrayList<Creature>());
+			listeners.add(new ArrayList<Creature>());
+		}
+	}
+
+	/** Returns the {@linkplain Creature} at ({@code x}, {@code y}, {@code z}) or {@code null} if the cell is empty or out of bounds. */
+	public Creature get(int x, int y, int z) {
+		if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth)
+			return null;
+		int[] level = cells[z];
+		if (level == null)
+			return null;
+		int slot = level[y*width + x];
+		return slot == EMPTY ? null : slots[slot];
+	}
+
+	/** Returns an unmodifiable view of the creatures on level {@code z}. The list is empty if {@code z} is out of bounds. */
+	public List<Creature> creatures(int z) {
+		if (z < 0 || z >= depth)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(levels.get(z));
+	}
+
+	/** Returns an unmodifiable view of the creatures on level {@code z} that listen to notifications. The list is empty if {@code z} is out of bounds. */
+	public List<Creature> listeners(int z) {
+		if (z < 0 || z >= depth)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(listeners.get(z));
+	}
+
+	/** Adds {@code creature} to or removes it from its level's listener list after its {@linkplain CreatureAI} changed. */
+	public void updateListener(Creature creature) {
+		int slot = creature.indexSlot;
+		if (slot == EMPTY || slotListens[slot] == listens(creature))
+			return;
+		List<Creature> level = listeners.get(slotCell[slot] / (width * height));
+		if (slotListens[slot])
+			level.remove(creature);
+		else
+			level.add(creature);
+		slotListens[slot] = !slotListens[slot];
+	}
+
+	private static boolean listens(Creature creature) {
+		return creature.ai() != null && creature.ai().listens();
+	}
+
+	/**
+	 * Records {@code creature} at ({@code x}, {@code y}, {@code z}), indexing it if it isn't already.
+	 * A creature already recorded at the destination is displaced from the cell but stays on its level list.
+	 * Moving out of bounds removes the creature from the index.
+	 */
+	public void move(Creature creature, int x, int y, int z) {
+		if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth) {
+			remove(creature);
+			return;
+		}
+		int slot = creature.indexSlot;
+		if (slot == EMPTY) {
+			slot = allocate(creature);
+			addToLevel(slot, z);
+		} else {
+			clearCell(slot);
+			int oldZ = slotCell[slot] / (width * height);
+			if (oldZ != z) {
+				removeFromLevel(slot, oldZ);
+				addToLevel(slot, z);
+			}
+		}
+		if (cells[z] == null) {
+			cells[z] = new int[width * height];
+			Arrays.fill(cells[z], EMPTY);
+		}
+		cells[z][y*width + x] = slot;
+		slotCell[slot] = (z*height + y)*width + x;
+	}
+
+	/** Removes {@code creature} from the index. Does nothing if it isn't indexed. */
+	public void remove(Creature creature) {
+		int slot = creature.indexSlot;
+		if (slot == EMPTY)
+			return;
+		clearCell(slot);
+		removeFromLevel(slot, slotCell[slot] / (width * height));
+		slots[slot] = null;
+		creature.indexSlot = EMPTY;
+		freeSlots[freeCount++] = slot;
+	}
+
+	/** Frees the cells of level {@code z} if no creature is on it. They are allocated again when a creature enters the level. */
+	public void release(int z) {
+		if (z >= 0 && z < depth && levels.get(z).isEmpty())
+			cells[z] = null;
+	}
+
+	/** Empties the cell recorded for {@code slot} unless another creature has since displaced it. */
+	private void clearCell(int slot) {
+		int cell = slotCell[slot], size = width * height;
+		int[] level = cells[cell / size];
+		if (level[cell % size] == slot)
+			level[cell % size] = EMPTY;
+	}
+
+	/** Assigns a slot to {@code creature}, reusing a freed slot when possible. */
+	private int allocate(Creature creature) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount == slots.length) {
+				int size = slotCount * 2;
+				slots = Arrays.copyOf(slots, size);
+				slotCell = Arrays.copyOf(slotCell, size);
+				slotPosition = Arrays.copyOf(slotPosition, size);
+				slotListens = Arrays.copyOf(slotListens, size);
+				freeSlots = Arrays.copyOf(freeSlots, size);
+			}
+			slot = slotCount++;
+		}
+		slots[slot] = creature;
+		slotListens[slot] = listens(creature);
+		creature.indexSlot = slot;
+		return slot;
+	}
+
+	private void addToLevel(int slot, int z) {
+		List<Creature> level = levels.get(z);
+		slotPosition[slot] = level.size();
+		level.add(slots[slot]);
+		if (slotListens[slot])
+			listeners.get(z).add(slots[slot]);
+	}
+
+	/** Removes the slot from its level list by swapping the last creature into its position. */
+	private void removeFromLevel(int slot, int z) {
+		List<Creature> level = levels.get(z);
+		int position = slotPosition[slot];
+		Creature last = level.remove(level.size() - 1);
+		if (last != slots[slot]) {
+			level.set(position, last);
+			slotPosition[last.indexSlot] = position;
+		}
+		if (slotListens[slot])
+			listeners.get(z).remove(slots[slot]);
+	}
+
+}
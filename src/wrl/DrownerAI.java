@@ -19,11 +19,13 @@ public class DrownerAI extends CreatureAI {
 	}
 	
 	public void onUpdate() {
-		Point newLastWater = creature.world().getShortestPathInRange(creature.location(), WATER_RANGE, p -> creature.world().tile(p) == Tile.WATER && !player.canSee(p) );
+		World world = creature.world();
+		Point newLastWater = world.getShortestPathInRange(creature.x(), creature.y(), creature.z(), WATER_RANGE,
+				(x, y, z) -> world.tile(x, y, z) == Tile.WATER && !player.canSee(world.point(x, y, z)) );
 		if (newLastWater != null) lastWater = newLastWater;
 		
 		if (canAttack(player))
-			hunt(player.location());
+			hunt(player);
 		else if (destination != null)
 			hunt(destination);
 		else {
@@ -40,22 +42,23 @@ public class DrownerAI extends CreatureAI {
 		if (!canSee(target.location()))
 			return false;
 		Path path = new Path(creature, target.x(), target.y());
-		if (path.points() == null)
+		if (!path.exists() || path.size() == 0)
 			return false;
-		int size = path.points().size();
-		if (path.points() == null || size == 0)
-			return false;
-		if (size == 1)
-			return true;
-		for (int i=0; i<size-1; i++)
-			if ( findNearestWater(path.points().get(i)) == null)
+		for (int i=0; i<path.size()-1; i++)
+			if (!isNearWater(path.x(i), path.y(i), creature.z()))
 				return false;
 		return true;
 	}
 	
-	/** Returns the closest {@linkplain Point} to {@code location} that is a water tile, or {@code null} if not in range. */
-	private Point findNearestWater(Point location) {
-		return creature.world().getShortestPathInRange(location, WATER_RANGE, p -> creature.world().tile(p) == Tile.WATER);
+	/**
+	 * Returns {@code true} if a water tile can be reached from ({@code x}, {@code y}, {@code z}) without leaving {@code WATER_RANGE} of it.
+	 * Looked up in the {@linkplain World#waterRange(int, int, int)} unless the range is larger than it covers.
+	 */
+	private boolean isNearWater(int x, int y, int z) {
+		World world = creature.world();
+		if (WATER_RANGE*WATER_RANGE <= World.MAX_WATER_RANGE_SQUARED)
+			return world.waterRange(x, y, z) <= WATER_RANGE*WATER_RANGE;
+		return world.getShortestPathInRange(x, y, z, WATER_RANGE, (wx, wy, wz) -> world.tile(wx, wy, wz) == Tile.WATER) != null;
 	}
 
 }
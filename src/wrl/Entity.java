@@ -54,29 +54,37 @@ public abstract class Entity implements Updatable  {
 	/** Sets the visible state of this Entity. */
 	public void setVisible(boolean visible) { this.visible = visible; }
 	
-	/** The location of this Entity on the {@code XY}-plane at depth {@code z} */
+	/** Does nothing by default. Entities whose state changes with time override this to catch up after being frozen. */
+	public void fastForward(int rounds) {}
+	
+	/** The location of this Entity on the {@code XY}-plane at depth {@code z}. The {@linkplain World}'s canonical instance when in bounds. */
 	private Point location;
 	
 	/** Sets the location to {@linkplain Point} {@code p}. */
-	protected void setLocation(Point p) { this.location = p == null ? null : new Point(p); }
+	protected void setLocation(Point p) { this.location = p == null ? null : point(p.x, p.y, p.z); }
 	
 	/** Sets the vertical position to {@code x}. */
-	protected void setX(int x) { this.location = new Point(x, location.y, location.z); }
+	protected void setX(int x) { this.location = point(x, location.y, location.z); }
 	
 	/** Sets the horizontal position to {@code y}. */
-	protected void setY(int y) { this.location = new Point(location.x, y, location.z); }
+	protected void setY(int y) { this.location = point(location.x, y, location.z); }
 	
 	/** Sets the depth to {@code z}. */
-	protected void setZ(int z) { this.location = new Point(location.x, location.y, z); }
+	protected void setZ(int z) { this.location = point(location.x, location.y, z); }
+	
+	/** Returns the canonical {@linkplain Point} of the world, or a new one if this Entity has no world. */
+	private Point point(int x, int y, int z) {
+		return world == null ? new Point(x, y, z) : world.point(x, y, z);
+	}
 	
 	/** The location of this Entity on the {@code XY}-plane */
 	public Point locationXY() {
-		return new Point(location.x, location.y, 0);
+		return point(location.x, location.y, 0);
 	}
 	
-	/** Returns the location of the Entity as a {@linkplain Point}. */
+	/** Returns the location of the Entity as a {@linkplain Point}. Points are immutable, so the stored instance is returned. */
 	public Point location() {
-		return (location == null) ? null : new Point(location);
+		return location;
 	}
 	
 	/** Returns the horizontal location of this Entity. */
@@ -97,7 +105,7 @@ public abstract class Entity implements Updatable  {
 	 * @see World#isInBounds(Point)
 	 */
 	public boolean isInBounds(int wx, int wy) {
-		return isInBounds(new Point(wx, wy, z()));
+		return world.isInBounds(wx, wy, z());
 	}
 	
 	/** @see World#isInBounds(Point) */
@@ -1,92 +1,202 @@
 package wrl;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.TreeSet;
 
 /**
  * The {@code EventOrganizer} class schedules updates to objects that implement the {@linkplain Updatable} interface.
- * It prioritizes items that have the highest AP value and the least recent update
+ * It prioritizes items that have the highest AP value and the least recent update.
+ * The queue is an indexed binary heap whose entries carry their own AP and tick keys, so comparisons never consult a map
+ * and a rescheduled {@linkplain Updatable} is moved in place in {@code O(log n)}.
  * @author Arun Sundaram
  *
  */
 public class EventOrganizer {
-	
+
 	private static final int TICK_MAX = 1000000;
-	
+
 	private int tick;
-	private Map<Updatable, Integer> tickMap;
-	private TreeSet<Updatable> queue;
-	
+	private int rounds;
+	private Map<Updatable, Entry> entries;
+	private Entry[] heap;
+	private int size;
+
 	public EventOrganizer() {
 		this.tick = 0;
-		this.tickMap = new HashMap<Updatable, Integer>();
-		this.queue = new TreeSet<Updatable>( (u1, u2) -> (u1==u2) ? 0 : (u1.ap() != u2.ap()) ? u2.ap() - u1.ap() : tickMap.get(u1) - tickMap.get(u2)  );
+		this.entries = new HashMap<Updatable, Entry>();
+		this.heap = new Entry[64];
+		this.size = 0;
+	}
+
+	/** A scheduled {@linkplain Updatable} along with its ordering keys and position in the heap. */
+	private static class Entry {
+		private final Updatable updatable;
+		private int ap;
+		private int tick;
+		private int index;
+
+		private Entry(Updatable updatable) {
+			this.updatable = updatable;
+		}
+
+		/** Returns {@code true} if this entry should be updated before {@code other}. */
+		private boolean precedes(Entry other) {
+			return ap != other.ap ? ap > other.ap : tick < other.tick;
+		}
 	}
-	
-	/** 
+
+	/**
 	 * Updates the next entity in the queue, removing it afterwards if non requiring a new update
 	 * Will update the AP of all the entities in the queue if max AP falls below zero.
 	 * If a non-player entity updates without spending AP, will print a warning to the console.
 	 */
 	public void nextUpdate() {
-		Updatable curr = queue.first(); 
+		Updatable curr = heap[0].updatable;
 		if (curr.ap() <= 0)
 			refreshAP();
 		if (tick > 2*TICK_MAX)
 			resetTicks();
-		
+
 		int ap = curr.ap();
 		curr.update();
-		
+
 		if ( !curr.updatePending() )
 			remove(curr);
 		else if (ap == curr.ap() && curr instanceof Entity &&  !((Entity)curr).isPlayer() ) {
 			System.out.println("WARNING: " + curr.getClass().getSimpleName() + " " + ((Entity) curr).name() + " has same AP = " + ap);
 		}
 	}
-	
+
 	/** Continues to update the queue until an Updatable is seen twice. */
 	public void updateEachOnce() {
 		HashSet<Updatable> seen = new HashSet<Updatable>();
 		Updatable curr;
-		while ( !seen.contains(curr = queue.first()) ) {
+		while ( !seen.contains(curr = heap[0].updatable) ) {
 			seen.add(curr);
 			nextUpdate();
 		}
 	}
-	
-	/** Refreshes the AP of each updatable. Can be thought of as iterating to the next turn */
+
+	/** Refreshes the AP of each updatable. Can be thought of as iterating to the next turn.
+	 * Every updatable gains the same amount of AP so the heap order is unchanged and the stored keys are resynchronized in place. */
 	private void refreshAP() {
-		for (Updatable u : queue)
-			u.refreshAP();
+		rounds++;
+		for (int i=0; i<size; i++) {
+			heap[i].updatable.refreshAP();
+			heap[i].ap = heap[i].updatable.ap();
+		}
 	}
-	
+
 	/** Reduces the current tick associated with each update to prevent overflow. */
 	private void resetTicks() {
 		tick -= TICK_MAX;
-		for (Updatable u : queue)
-			tickMap.put(u, tickMap.get(u) - TICK_MAX);
+		for (int i=0; i<size; i++)
+			heap[i].tick -= TICK_MAX;
 	}
-	
-	/** Adds an {@linkplain Updatable} item to the queue. */
+
+	/** Adds an {@linkplain Updatable} item to the queue. If it is already queued, it is reordered as if it were removed and added again. */
 	public void add(Updatable updatable) {
-		tickMap.put(updatable, tick++);
-		queue.add(updatable);
+		Entry entry = entries.get(updatable);
+		if (entry != null) {
+			rekey(entry);
+			return;
+		}
+		entry = new Entry(updatable);
+		entry.ap = updatable.ap();
+		entry.tick = tick++;
+		entries.put(updatable, entry);
+
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		entry.index = size;
+		heap[size++] = entry;
+		siftUp(entry.index);
 	}
-	
+
+	/** Reorders an {@linkplain Updatable} whose AP has changed, adding it to the queue if it isn't already queued.
+	 * Equivalent to calling {@linkplain #remove(Updatable)} followed by {@linkplain #add(Updatable)}. */
+	public void reschedule(Updatable updatable) {
+		add(updatable);
+	}
+
+	/** Assigns new keys to a queued entry and restores its position in the heap. */
+	private void rekey(Entry entry) {
+		entry.ap = entry.updatable.ap();
+		entry.tick = tick++;
+		siftUp(entry.index);
+		siftDown(entry.index);
+	}
+
 	/** Removes an {@linkplain Updatable} item from the queue. */
 	public void remove(Updatable updatable) {
-		if (tickMap.containsKey(updatable)) {
-			queue.remove(updatable);
-			tickMap.remove(updatable);
-		}
+		Entry entry = entries.remove(updatable);
+		if (entry == null)
+			return;
+		int index = entry.index;
+		Entry last = heap[--size];
+		heap[size] = null;
+		if (index == size)
+			return;
+		heap[index] = last;
+		last.index = index;
+		siftUp(index);
+		siftDown(last.index);
+	}
+
+	/** Returns {@code true} if the passed {@linkplain Updatable} is queued. */
+	public boolean contains(Updatable updatable) {
+		return entries.containsKey(updatable);
 	}
 
 	/** Returns {@code true} if the passed {@linkplain Updatable} will be updated the next time {@linkplain #nextUpdate(Creature)} is called. */
 	public boolean isNext(Updatable updatable) {
-		return !queue.isEmpty() && queue.first() == updatable;
+		return size > 0 && heap[0].updatable == updatable;
+	}
+
+	/** Returns the number of times the AP of the queue has been refreshed. */
+	public int rounds() {
+		return rounds;
 	}
-	
-}
\ No newline at end of file
+
+	/** Returns the number of queued {@linkplain Updatable}s. */
+	public int size() {
+		return size;
+	}
+
+	/** Moves the entry at {@code index} towards the root until its parent precedes it. */
+	private void siftUp(int index) {
+		Entry entry = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!entry.precedes(heap[parent]))
+				break;
+			heap[index] = heap[parent];
+			heap[index].index = index;
+			index = parent;
+		}
+		heap[index] = entry;
+		entry.index = index;
+	}
+
+	/** Moves the entry at {@code index} towards the leaves until it precedes both of its children. */
+	private void siftDown(int index) {
+		Entry entry = heap[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2*index + 1;
+			int right = child + 1;
+			if (right < size && heap[right].precedes(heap[child]))
+				child = right;
+			if (!heap[child].precedes(entry))
+				break;
+			heap[index] = heap[child];
+			heap[index].index = index;
+			index = child;
+		}
+		heap[index] = entry;
+		entry.index = index;
+	}
+
+}
@@ -1,6 +1,7 @@
 package wrl;
 
 import java.awt.Color;
+import java.util.Arrays;
 /**
  * The {@code FieldOfView} class is used to describe the visibility of {@linkplain Tile}s surrounding a {@linkplain Point} in the {@linkplain World} 
  * and as a memory of previously seen but not currently visible {@code Tile}s.
@@ -14,11 +15,19 @@ public class FieldOfView {
 	private int depth;
 	int range;
 
-	private int[][] visibility;
+	/** Visibility of each cell on level {@code depth}, indexed as {@code y*width + x}. {@code null} until the first update. */
+	private int[] visibility;
+	/** Bounds of the cells written since the visibility was last cleared. */
+	private int minX, minY, maxX = -1, maxY = -1;
 	/** Returns the degree to which a given {@linkplain Point} is visible. */
 	public int visibility(Point p) {
-		if ( p.z == depth && world.isInBounds(p))
-			return visibility[p.x][p.y];
+		return visibility(p.x, p.y, p.z);
+	}
+	
+	/** Returns the degree to which ({@code x}, {@code y}, {@code z}) is visible. */
+	public int visibility(int x, int y, int z) {
+		if ( z == depth && visibility != null && world.isInBounds(x, y, z))
+			return visibility[y*world.width() + x];
 		return 0;
 	}
 	
@@ -27,7 +36,6 @@ public class FieldOfView {
 		return visibility(p) > 0;
 	}
 	
-	// TODO replace with Tile static method blend() 
 	/**
 	 * If a given {@linkplain Point} is visible it will return the {@linkplain Color} of the corresponding {@linkplain Tile}.
 	 * The most visible tiles have their full color while less visible tiles are proportionally more grey.
@@ -37,92 +45,177 @@ public class FieldOfView {
 	 */
 	public Color visibleColor(Point p, Creature player) {
 		if (range == 0)
-			return Color.DARK_GRAY.darker();
-		Color cw = world.color(p, player);
-		if (!isVisible(p)) {
-			return cw;
-		}
-		Color gray = Color.DARK_GRAY.darker();
-		int red = (cw.getRed() - gray.getRed()) * visibility[p.x][p.y] / range;
-		int green = (cw.getGreen() - gray.getGreen()) * visibility[p.x][p.y] / range;
-		int blue = (cw.getBlue() - gray.getBlue()) * visibility[p.x][p.y] / range;
-		
-		return new Color(
-				Math.min(255, Math.max(0, red 	+ 	gray.getRed())), 
-				Math.min(255, Math.max(0, green + 	gray.getRed())), 
-				Math.min(255, Math.max(0, blue 	+ 	gray.getBlue())));
+			return SHADOW;
+		return visibleColor(world.color(p, player), visibility(p));
 	}
 	
-	private Tile[][][] tiles;
+	/** Color that tiles fade to as they become less visible. */
+	private static final Color SHADOW = Color.DARK_GRAY.darker();
+	
+	/** Returns {@code cw} as seen with visibility {@code v}, or {@code cw} itself if {@code v} is not positive. The shade is looked up in the shared {@linkplain ColorTable}. */
+	public Color visibleColor(Color cw, int v) {
+		if (range == 0)
+			return SHADOW;
+		return v > 0 ? ColorTable.blend(cw, SHADOW, v, range) : cw;
+	}
+	
+	/** Remembered tiles of each level indexed as {@code y*width + x}. A level's memory is allocated when something on it is first seen. */
+	private Tile[][] tiles;
 	/** Returns the {@linkplain Tile} at the passed {@linkplain Point} from the {@code FieldOfView}'s memory. Returns {@linkplain Tile#BOUNDS} if out of bounds.*/
 	public Tile tile(Point p) {
-		if (!world.isInBounds(p))
+		return tile(p.x, p.y, p.z);
+	}
+	
+	/** Returns the remembered {@linkplain Tile} at ({@code x}, {@code y}, {@code z}). */
+	public Tile tile(int x, int y, int z) {
+		if (!world.isInBounds(x, y, z))
 			return Tile.BOUNDS;
-		return tiles[p.x][p.y][p.z];
+		Tile[] level = tiles[z];
+		return level == null ? Tile.UNKNOWN : level[y*world.width() + x];
+	}
+	
+	/** Returns the memory of level {@code z}, allocating it filled with {@linkplain Tile#UNKNOWN} if needed. */
+	private Tile[] memory(int z) {
+		if (tiles[z] == null) {
+			tiles[z] = new Tile[world.width() * world.height()];
+			Arrays.fill(tiles[z], Tile.UNKNOWN);
+		}
+		return tiles[z];
 	}
 	
 	/** @param world - The {@linkplain World} that this {@code FieldOfView} describes */
 	public FieldOfView(World world) {
 		this.world = world;
-		tiles = new Tile[world.width()][world.height()][world.depth()];
-		for (int x=0; x<tiles.length; x++) {
-			for (int y=0; y<tiles[0].length; y++) {
-				for (int z=0; z<tiles[0][0].length; z++) {
-					tiles[x][y][z] = Tile.UNKNOWN;
-				}
-			}
-		}
+		tiles = new Tile[world.depth()][];
 	}
 	
 	public void update() {}
 	
-	/** Adds information from another {@code FieldOfView} by retaining the maximum visibility and updating known {@linkplain Tile}s for every {@linkplain Point}.
+	/** Adds information from another {@code FieldOfView} by retaining the maximum visibility and updating known {@linkplain Tile}s
+	 * within the area the other {@code FieldOfView} last updated.
 	 * @param other - the {@code FieldOfView} that will update  {@code this}
 	 * @param z - depth */
 	public void addFOV(FieldOfView other, int z) {
-		if (other.visibility == null) {
+		if (other.visibility == null || visibility == null) {
 			return;
 		}
-		// TODO restrict loop to isVisible in r*r square
-		for (int x= 0; x<visibility.length; x++) {
-			for (int y=0; y<visibility[0].length; y++) {
-				visibility[x][y] = Math.max(visibility[x][y], other.visibility[x][y]);
-				if (other.tiles[x][y][z] != Tile.UNKNOWN)
-					tiles[x][y][z] = other.tiles[x][y][z];
+		int width = world.width();
+		Tile[] memory = memory(z), otherMemory = other.tiles[z];
+		for (int y=other.minY; y<=other.maxY; y++) {
+			for (int x=other.minX; x<=other.maxX; x++) {
+				int i = y*width + x;
+				visibility[i] = Math.max(visibility[i], other.visibility[i]);
+				if (otherMemory != null && otherMemory[i] != Tile.UNKNOWN)
+					memory[i] = otherMemory[i];
 			}
 		}
+		if (other.minX <= other.maxX)
+			growBounds(other.minX, other.minY, other.maxX, other.maxY);
 	}
 	
+	/** Octant transforms from (column, row) offsets into world offsets, as {xx, xy, yx, yy} per octant. */
+	private static final int[][] OCTANTS = {
+			{ 1,  0,  0,  1}, { 0,  1,  1,  0}, { 0, -1,  1,  0}, {-1,  0,  0,  1},
+			{-1,  0,  0, -1}, { 0, -1, -1,  0}, { 0,  1, -1,  0}, { 1,  0,  0, -1} };
+	
+	private int originX, originY;
+	/** Memory of the level being updated. */
+	private Tile[] memory;
+	
 	/** Updates the {@code FieldOfView} from a {@linkplain Point} {@code location} and its radius {@code r}.
-	 * Visibility values are calculated by retaining the maximum visibility of lines of sight radiating from {@code location}.
-	 * The lines of sight are considered visible for a radius {@code r} unless obstructed by a non-ground tile.
+	 * Uses <a href="http://www.roguebasin.com/index.php/FOV_using_recursive_shadowcasting">recursive shadowcasting</a href>,
+	 * visiting each cell within radius {@code r} once per octant and stopping at non-ground tiles.
+	 * A visible cell {@code d} steps away (Chebyshev distance) has visibility {@code 8*ln(r - d)}.
 	 * Previously discovered tile are remembered as they were even if they are changed out of sight. 
+	 * The visibility buffer is reused and only the area written by the previous update is cleared.
 	 * @param location - the Point at which the visibility will be updated
 	 * @param r - the radial distance from (@code location) that can be viewed
 	*/
 	public void update(Point location, int r) {
 		if (r==0)
 			return;
+		int width = world.width();
+		if (visibility == null) {
+			visibility = new int[width * world.height()];
+		} else {
+			for (int y=minY; y<=maxY; y++)
+				Arrays.fill(visibility, y*width + minX, y*width + maxX + 1, 0);
+		}
 		depth = location.z;
-		visibility = new int[world.width()][world.height()];
 		range = r;
-		for (int x=-r; x<=r; x++) {
-			for (int y=-r; y<=r; y++) {
-				if (x*x + y*y > r*r)
-					continue;
-				if (location.x + x < 0 || location.x + x >= world.width() || location.y + y < 0 || location.y + y >= world.height())
+		originX = location.x;
+		originY = location.y;
+		minX = Math.max(0, originX - r);
+		minY = Math.max(0, originY - r);
+		maxX = Math.min(width - 1, originX + r);
+		maxY = Math.min(world.height() - 1, originY + r);
+		if (!world.isInBounds(location)) {
+			maxX = maxY = -1;
+			return;
+		}
+		memory = memory(depth);
+		
+		light(originX, originY, 0);
+		for (int[] octant : OCTANTS)
+			castLight(1, 1.0, 0.0, octant[0], octant[1], octant[2], octant[3]);
+	}
+	
+	/** Lights one row band of an octant between the slopes {@code start} and {@code end}, recursing past obstructions. */
+	private void castLight(int row, double start, double end, int xx, int xy, int yx, int yy) {
+		if (start < end)
+			return;
+		double newStart = 0.0;
+		for (int j=row; j<=range; j++) {
+			boolean blocked = false;
+			for (int dx=-j, dy=-j; dx<=0; dx++) {
+				double leftSlope = (dx - 0.5) / (dy + 0.5);
+				double rightSlope = (dx + 0.5) / (dy - 0.5);
+				if (start < rightSlope)
 					continue;
-				int strength = r;
-				for (Point p : new Line(location.x, location.y, location.x+x, location.y+y)) {
-					Tile tile = world.tile( new Point(p.x, p.y, location.z) );
-					visibility[p.x][p.y] =  Math.max(visibility[p.x][p.y], (int ) (8 * Math.log(strength--)) );
-					tiles[p.x][p.y][location.z] = tile;
-					if (!tile.isGround())
-						break;
-				}
+				if (end > leftSlope)
+					break;
 				
+				int x = originX + dx*xx + dy*xy;
+				int y = originY + dx*yx + dy*yy;
+				boolean opaque = !world.isGround(x, y, depth);
+				if (dx*dx + dy*dy <= range*range && world.isInBounds(x, y, depth))
+					light(x, y, j);
+				
+				if (blocked) {
+					if (opaque) {
+						newStart = rightSlope;
+					} else {
+						blocked = false;
+						start = newStart;
+					}
+				} else if (opaque && j < range) {
+					blocked = true;
+					castLight(j + 1, start, leftSlope, xx, xy, yx, yy);
+					newStart = rightSlope;
+				}
 			}
+			if (blocked)
+				break;
+		}
+	}
+	
+	/** Marks the in-bounds cell ({@code x}, {@code y}) as seen from {@code distance} steps away and remembers its tile. */
+	private void light(int x, int y, int distance) {
+		int i = y*world.width() + x;
+		visibility[i] = Math.max(visibility[i], Math.max(0, (int) (8 * Math.log(range - distance))));
+		memory[i] = world.tile(x, y, depth);
+	}
+	
+	/** Extends the area that will be cleared on the next update. */
+	private void growBounds(int x0, int y0, int x1, int y1) {
+		if (maxX < minX) {
+			minX = x0; minY = y0; maxX = x1; maxY = y1;
+			return;
 		}
+		minX = Math.min(minX, x0);
+		minY = Math.min(minY, y0);
+		maxX = Math.max(maxX, x1);
+		maxY = Math.max(maxY, y1);
 	}
 
 }
@@ -0,0 +1,122 @@
+package wrl;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * The {@code FreeCells} class keeps the cells of each level of a {@linkplain World} that are free for something to be placed in,
+ * such as ground cells without a creature. Cells are identified as {@code y*width + x}.
+ * <br>Each level keeps its free cells in a dense array along with the position of every cell in it, so a cell is added or removed in constant
+ * time by swapping it with the last one, and a uniformly random free cell is drawn in constant time. A level is only tracked once it is indexed.
+ * @author Arun Sundaram
+ *
+ */
+public class FreeCells {
+
+	private static final int ABSENT = -1;
+	/** Number of random cells tested against a predicate before the level is scanned for the cells that satisfy it. */
+	private static final int TRIES = 32;
+
+	private int cellsPerLevel;
+	/** Free cells of each level in no particular order. {@code null} for levels that aren't indexed. */
+	private int[][] cells;
+	/** Position of each cell of each level in {@link #cells}, or {@link #ABSENT}. */
+	private int[][] positions;
+	private int[] sizes;
+
+	/**
+	 * @param cellsPerLevel - width times height of the world
+	 * @param depth - number of levels in the world
+	 */
+	public FreeCells(int cellsPerLevel, int depth) {
+		this.cellsPerLevel = cellsPerLevel;
+		this.cells = new int[depth][];
+		this.positions = new int[depth][];
+		this.sizes = new int[depth];
+	}
+
+	/** Returns {@code true} if level {@code z} is tracked. */
+	public boolean isIndexed(int z) {
+		return cells[z] != null;
+	}
+
+	/** Starts tracking level {@code z}, whose free cells are those for which {@code free} returns {@code true}. */
+	public void index(int z, IntPredicate free) {
+		int[] level = new int[cellsPerLevel];
+		int[] position = new int[cellsPerLevel];
+		int size = 0;
+		for (int cell=0; cell<cellsPerLevel; cell++) {
+			if (free.test(cell)) {
+				position[cell] = size;
+				level[size++] = cell;
+			} else {
+				position[cell] = ABSENT;
+			}
+		}
+		cells[z] = level;
+		positions[z] = position;
+		sizes[z] = size;
+	}
+
+	/** Stops tracking level {@code z}. */
+	public void release(int z) {
+		cells[z] = null;
+		positions[z] = null;
+		sizes[z] = 0;
+	}
+
+	/** Returns the number of free cells on level {@code z}. */
+	public int size(int z) {
+		return sizes[z];
+	}
+
+	/** Returns {@code true} if {@code cell} of level {@code z} is free. */
+	public boolean contains(int z, int cell) {
+		return positions[z] != null && positions[z][cell] != ABSENT;
+	}
+
+	/** Marks {@code cell} of level {@code z} as free or not. Does nothing if the level isn't indexed. */
+	public void set(int z, int cell, boolean free) {
+		int[] position = positions[z];
+		if (position == null || free == (position[cell] != ABSENT))
+			return;
+		int[] level = cells[z];
+		if (free) {
+			position[cell] = sizes[z];
+			level[sizes[z]++] = cell;
+		} else {
+			int last = level[--sizes[z]];
+			level[position[cell]] = last;
+			position[last] = position[cell];
+			position[cell] = ABSENT;
+		}
+	}
+
+	/**
+	 * Returns a uniformly random free cell of level {@code z} for which {@code valid} returns {@code true}, or {@code -1} if there is none.
+	 * Random cells are tested first. If none of them is valid, every free cell is tested and one of the valid cells is chosen,
+	 * so rare predicates such as a tile type still find a cell. {@code valid} must not change the free cells.
+	 */
+	public int sample(int z, Random random, IntPredicate valid) {
+		int size = sizes[z];
+		if (size == 0)
+			return ABSENT;
+		int[] level = cells[z];
+		for (int i=0; i<TRIES; i++) {
+			int cell = level[random.nextInt(size)];
+			if (valid.test(cell))
+				return cell;
+		}
+		int count = 0;
+		for (int i=0; i<size; i++)
+			if (valid.test(level[i]))
+				count++;
+		if (count == 0)
+			return ABSENT;
+		int chosen = random.nextInt(count);
+		for (int i=0; ; i++)
+			if (valid.test(level[i]) && chosen-- == 0)
+				return level[i];
+	}
+
+}
@@ -23,7 +23,7 @@ public class GoblinAI extends CreatureAI {
 			destination = player.location();
 		}
 		else if (creature.canSee(player.location())) {
-			hunt(player.location());
+			hunt(player);
 		} else if (destination != null)
 			hunt(destination);
 		else if (canPickup()) {
@@ -19,12 +19,14 @@ public abstract class Hazard extends Entity implements Cloneable, ObserverFOV {
 	public void refreshAP() { actionPoints += 100; }
 	public void modifyAP(int amount) {
 		if (amount != 0) {
-			world.cancelUpdate(this);
 			actionPoints += amount;
-			world.scheduleUpdate(this);
+			world.rescheduleUpdate(this);
 		}
 	}
 	
+	/** Slot of this hazard in the {@linkplain HazardGrid} of its world, or {@code -1} if it isn't in one. */
+	int gridSlot = -1;
+	
 	private Creature owner;
 	/** Sets the {@linkplain Creature} that owns this Hazard of this Hazard. Returns {@code null} if no owner.  */
 	public Creature owner() {
@@ -57,6 +59,13 @@ public abstract class Hazard extends Entity implements Cloneable, ObserverFOV {
 		setLocation(p);
 	}
 	
+	/** Sets the color of the background and updates the averaged background of this hazard's cell. */
+	@Override
+	public void setBackground(Color background) {
+		super.setBackground(background);
+		world.updateHazardBackground(this);
+	}
+	
 	public FieldOfView updateFOV() { System.out.println("Observer " + name() + " has no FOV."); return null; }
 	
 	/** Defines action for when a {@linkplain Creature} enters the location of this Hazard */
@@ -72,7 +81,9 @@ public abstract class Hazard extends Entity implements Cloneable, ObserverFOV {
 	
 	public Object clone() {
 		try {
-			return super.clone();
+			Hazard clone = (Hazard) super.clone();
+			clone.gridSlot = -1;
+			return clone;
 		} catch (CloneNotSupportedException e) {
 			// This should never happen
 			throw new InternalError(e.toString());
@@ -0,0 +1,313 @@
+package wrl;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code HazardGrid} class tracks the {@linkplain Hazard}s in each cell of a {@linkplain World}.
+ * Like the {@linkplain CreatureIndex} each indexed hazard is given a slot id. The hazards of a cell form a doubly linked list of slots
+ * stored in primitive arrays, newest first, so adding, removing and looking up hazards never allocates or hashes.
+ * <br>The grid also keeps the summed background of the hazards in each cell and the averaged {@linkplain Color}, which are updated as hazards
+ * come and go or change their background. The arrays of a level are allocated when a hazard enters it.
+ * <br>Hazards outside the width and height of the world are kept on their level's list but in no cell.
+ * @author Arun Sundaram
+ *
+ */
+public class HazardGrid {
+
+	private static final int EMPTY = -1;
+
+	private int width;
+	private int height;
+	private int depth;
+
+	/** First slot of each cell of each level, indexed as {@code y*width + x}. {@code null} for levels never entered. */
+	private int[][] heads;
+	/** Red, green and blue sums and the number of backgrounds of each cell, four entries per cell. */
+	private int[][] sums;
+	/** Averaged background of each cell, {@code null} where no hazard has a background. */
+	private Color[][] backgrounds;
+	private ColorCache colors = new ColorCache();
+
+	private Hazard[] slots;
+	private int[] next;
+	private int[] previous;
+	/** Cell each slot is in, as {@code y*width + x}, or {@link #EMPTY} if it is outside the world. */
+	private int[] slotCell;
+	private int[] slotLevel;
+	/** Background each slot added to its cell's sums, or {@code null}. */
+	private Color[] slotBackground;
+	/** Position of each slot in its level list. */
+	private int[] slotPosition;
+	private int[] freeSlots;
+	private int freeCount;
+	private int slotCount;
+
+	private List<List<Hazard>> levels;
+
+	/**
+	 * @param width - width of the world
+	 * @param height - height of the world
+	 * @param depth - number of levels in the world
+	 */
+	public HazardGrid(int width, int height, int depth) {
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.heads = new int[depth][];
+		this.sums = new int[depth][];
+		this.backgrounds = new Color[depth][];
+		this.slots = new Hazard[64];
+		this.next = new int[64];
+		this.previous = new int[64];
+		this.slotCell = new int[64];
+		this.slotLevel = new int[64];
+		this.slotBackground = new Color[64];
+		this.slotPosition = new int[64];
+		this.freeSlots = new int[64];
+		this.levels = new ArrayList<List<Hazard>>(depth);
+		for (int z=0; z<depth; z++)
+			levels.add(new ArrayList<Hazard>());
+	}
+
+	/** Returns an unmodifiable view of the hazards on level {@code z}. The list is empty if {@code z} is out of bounds. */
+	public List<Hazard> hazards(int z) {
+		if (z < 0 || z >= depth)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(levels.get(z));
+	}
+
+	/** Returns {@code true} if a hazard is in the cell ({@code x}, {@code y}, {@code z}). */
+	public boolean contains(int x, int y, int z) {
+		return first(x, y, z) != EMPTY;
+	}
+
+	/** Returns the glyph of the newest hazard in the cell that has one, or {@code (char)0} if none has. */
+	public char glyph(int x, int y, int z) {
+		for (int slot = first(x, y, z); slot != EMPTY; slot = next[slot])
+			if (slots[slot].glyph() != (char)0)
+				return slots[slot].glyph();
+		return (char)0;
+	}
+
+	/** Returns the glyph {@linkplain Color} of the newest hazard in the cell that has one, or {@code null} if none has. */
+	public Color color(int x, int y, int z) {
+		for (int slot = first(x, y, z); slot != EMPTY; slot = next[slot])
+			if (slots[slot].color() != null)
+				return slots[slot].color();
+		return null;
+	}
+
+	/** Returns the average background of the hazards in the cell that have one, or {@code null} if none has. */
+	public Color background(int x, int y, int z) {
+		if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth || backgrounds[z] == null)
+			return null;
+		return backgrounds[z][y*width + x];
+	}
+
+	/** Adds {@code hazard} to the cell ({@code x}, {@code y}, {@code z}), or moves it there if it is already indexed. Hazards outside every level aren't indexed. */
+	public void add(Hazard hazard, int x, int y, int z) {
+		if (z < 0 || z >= depth) {
+			remove(hazard);
+			return;
+		}
+		int slot = hazard.gridSlot;
+		if (slot == EMPTY) {
+			slot = allocate(hazard);
+			addToLevel(slot, z);
+		} else {
+			unlink(slot);
+			if (slotLevel[slot] != z) {
+				removeFromLevel(slot);
+				addToLevel(slot, z);
+			}
+		}
+		boolean inWorld = x >= 0 && x < width && y >= 0 && y < height;
+		slotCell[slot] = inWorld ? y*width + x : EMPTY;
+		if (inWorld)
+			link(slot);
+	}
+
+	/**
+	 * Adds every hazard in {@code hazards} at its own location. Used for the footprint of a {@linkplain Splash},
+	 * whose averaged backgrounds are only recomputed once per cell.
+	 */
+	public void addAll(List<Hazard> hazards) {
+		for (Hazard hazard : hazards) {
+			int z = hazard.z();
+			if (z < 0 || z >= depth)
+				continue;
+			int slot = hazard.gridSlot;
+			if (slot != EMPTY)
+				remove(hazard);
+			slot = allocate(hazard);
+			addToLevel(slot, z);
+			int x = hazard.x(), y = hazard.y();
+			boolean inWorld = x >= 0 && x < width && y >= 0 && y < height;
+			slotCell[slot] = inWorld ? y*width + x : EMPTY;
+			if (inWorld)
+				push(slot);
+		}
+		for (Hazard hazard : hazards)
+			if (hazard.gridSlot != EMPTY && slotCell[hazard.gridSlot] != EMPTY)
+				average(slotLevel[hazard.gridSlot], slotCell[hazard.gridSlot]);
+	}
+
+	/** Removes {@code hazard} from the grid. Does nothing if it isn't indexed. */
+	public void remove(Hazard hazard) {
+		int slot = hazard.gridSlot;
+		if (slot == EMPTY)
+			return;
+		unlink(slot);
+		removeFromLevel(slot);
+		slots[slot] = null;
+		hazard.gridSlot = EMPTY;
+		freeSlots[freeCount++] = slot;
+	}
+
+	/** Updates the background sums of the cell of {@code hazard} after its background changed. */
+	public void refreshBackground(Hazard hazard) {
+		int slot = hazard.gridSlot;
+		if (slot == EMPTY || slotCell[slot] == EMPTY)
+			return;
+		subtract(slot);
+		addBackground(slot);
+		average(slotLevel[slot], slotCell[slot]);
+	}
+
+	/** Frees the arrays of level {@code z} if no hazard is on it. They are allocated again when a hazard enters the level. */
+	public void release(int z) {
+		if (z >= 0 && z < depth && levels.get(z).isEmpty()) {
+			heads[z] = null;
+			sums[z] = null;
+			backgrounds[z] = null;
+		}
+	}
+
+	/** Returns the newest slot in the cell or {@link #EMPTY}. */
+	private int first(int x, int y, int z) {
+		if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth || heads[z] == null)
+			return EMPTY;
+		return heads[z][y*width + x];
+	}
+
+	/** Puts the slot at the front of its cell's list and updates the cell's background. */
+	private void link(int slot) {
+		push(slot);
+		average(slotLevel[slot], slotCell[slot]);
+	}
+
+	/** Puts the slot at the front of its cell's list and adds to the cell's sums without averaging them. */
+	private void push(int slot) {
+		int z = slotLevel[slot], cell = slotCell[slot];
+		if (heads[z] == null) {
+			heads[z] = new int[width * height];
+			Arrays.fill(heads[z], EMPTY);
+			sums[z] = new int[4 * width * height];
+			backgrounds[z] = new Color[width * height];
+		}
+		int head = heads[z][cell];
+		next[slot] = head;
+		previous[slot] = EMPTY;
+		if (head != EMPTY)
+			previous[head] = slot;
+		heads[z][cell] = slot;
+		addBackground(slot);
+	}
+
+	/** Takes the slot out of its cell's list, if it is in one, and updates the cell's background. */
+	private void unlink(int slot) {
+		int z = slotLevel[slot], cell = slotCell[slot];
+		if (cell == EMPTY)
+			return;
+		if (previous[slot] != EMPTY)
+			next[previous[slot]] = next[slot];
+		else
+			heads[z][cell] = next[slot];
+		if (next[slot] != EMPTY)
+			previous[next[slot]] = previous[slot];
+		subtract(slot);
+		average(z, cell);
+		slotCell[slot] = EMPTY;
+	}
+
+	private void addBackground(int slot) {
+		Color background = slots[slot].background();
+		slotBackground[slot] = background;
+		if (background == null)
+			return;
+		int[] sum = sums[slotLevel[slot]];
+		int i = 4 * slotCell[slot];
+		sum[i] += background.getRed();
+		sum[i + 1] += background.getGreen();
+		sum[i + 2] += background.getBlue();
+		sum[i + 3]++;
+	}
+
+	private void subtract(int slot) {
+		Color background = slotBackground[slot];
+		slotBackground[slot] = null;
+		if (background == null)
+			return;
+		int[] sum = sums[slotLevel[slot]];
+		int i = 4 * slotCell[slot];
+		sum[i] -= background.getRed();
+		sum[i + 1] -= background.getGreen();
+		sum[i + 2] -= background.getBlue();
+		sum[i + 3]--;
+	}
+
+	/** Recomputes the averaged background of a cell from its sums. */
+	private void average(int z, int cell) {
+		int[] sum = sums[z];
+		int i = 4 * cell, count = sum[i + 3];
+		backgrounds[z][cell] = count == 0 ? null : colors.rgb(sum[i] / count, sum[i + 1] / count, sum[i + 2] / count);
+	}
+
+	/** Assigns a slot to {@code hazard}, reusing a freed slot when possible. */
+	private int allocate(Hazard hazard) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount == slots.length) {
+				int size = slotCount * 2;
+				slots = Arrays.copyOf(slots, size);
+				next = Arrays.copyOf(next, size);
+				previous = Arrays.copyOf(previous, size);
+				slotCell = Arrays.copyOf(slotCell, size);
+				slotLevel = Arrays.copyOf(slotLevel, size);
+				slotBackground = Arrays.copyOf(slotBackground, size);
+				slotPosition = Arrays.copyOf(slotPosition, size);
+				freeSlots = Arrays.copyOf(freeSlots, size);
+			}
+			slot = slotCount++;
+		}
+		slots[slot] = hazard;
+		slotCell[slot] = EMPTY;
+		hazard.gridSlot = slot;
+		return slot;
+	}
+
+	private void addToLevel(int slot, int z) {
+		List<Hazard> level = levels.get(z);
+		slotLevel[slot] = z;
+		slotPosition[slot] = level.size();
+		level.add(slots[slot]);
+	}
+
+	/** Removes the slot from its level list by swapping the last hazard into its position. */
+	private void removeFromLevel(int slot) {
+		List<Hazard> level = levels.get(slotLevel[slot]);
+		int position = slotPosition[slot];
+		Hazard last = level.remove(level.size() - 1);
+		if (last != slots[slot]) {
+			level.set(position, last);
+			slotPosition[last.gridSlot] = position;
+		}
+	}
+
+}
@@ -153,9 +153,8 @@ public class Item extends Entity {
 	
 	public void modifyAP(int amount) {
 		if (amount != 0) {
-			world.cancelUpdate(this);
 			actionPoints += amount;
-			world.scheduleUpdate(this);
+			world.rescheduleUpdate(this);
 		}
 	}
 	
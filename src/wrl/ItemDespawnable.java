@@ -24,9 +24,9 @@ public class ItemDespawnable extends Item {
 		this.despawnAP = -100 * despawnTurns;
 	}
 	
-	/** Schedules update if not in container or if {@code super.updatePending()} is satisfied. */
+	/** Schedules update while not in a container. At zero AP the item despawns on the next refresh, so it must stay scheduled until AP turns positive. */
 	public boolean updatePending() {
-		return !isInContainer() && ap() < 0;
+		return !isInContainer() && ap() <= 0;
 	}
 	/** Resets AP when corpse is dropped into World. */
 	public void onContainerChange(Creature newContainer) {
@@ -39,6 +39,15 @@ public class ItemDespawnable extends Item {
 		}
 	}
 	
+	/** Advances the despawn timer by {@code rounds} refreshes at once, despawning now if it has run out. */
+	public void fastForward(int rounds) {
+		if (isInContainer())
+			return;
+		setAP(ap() + 100 * rounds);
+		if (ap() > 0)
+			update();
+	}
+	
 	/** Deletes corpse if AP is positive from {@linkplain Item#refreshAP()}. */
 	public void update() {
 		world.remove(this);
@@ -0,0 +1,16 @@
+package wrl;
+
+/**
+ * The LevelProvider interface is implemented by classes that generate the levels of a lazily built {@linkplain World} on demand.
+ * @author Arun Sundaram
+ *
+ */
+public interface LevelProvider {
+
+	/** Returns the tiles of level {@code z} as {@linkplain Tile#ordinal()} values indexed as {@code y*width + x}. */
+	public byte[] level(int z);
+
+	/** Returns {@code true} if ({@code x}, {@code y}) is ground on the generated level {@code z}, without generating the rest of the level. */
+	public boolean isGround(int x, int y, int z);
+
+}
@@ -37,7 +37,7 @@ public class LevelUpController {
 	
 	/** Automatically select a level up bonus at random. */
 	public void autoLevelUp(Creature creature) {
-		options[(int) (Math.random() * options.length)].invoke(creature);
+		options[creature.world().random().nextInt(options.length)].invoke(creature);
 	}
 	
 	/** Return option names as a {@linkplain List}. */
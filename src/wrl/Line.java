@@ -5,13 +5,20 @@ import java.util.Iterator;
 import java.util.List;
 
 /**
- * A straight line of consecutive {@linkplain Point}s 
+ * A straight line of consecutive {@linkplain Point}s.
+ * The Points are only created when the line is iterated. Callers that don't need them should use a {@linkplain LineWalker}.
  *
  */
 public class Line implements Iterable<Point> {
 	
+	private int x0, y0, x1, y1, depth;
+	
 	private List<Point> points;
-	public List<Point> getPoints(){ return points; }
+	public List<Point> getPoints(){
+		if (points == null)
+			makeLine(x0, y0, x1, y1, depth);
+		return points;
+	}
 	
 	/**  
 	 * {@code depth} defaults to {@code p0.z}.
@@ -40,7 +47,11 @@ public class Line implements Iterable<Point> {
 	 * @param depth of the XY plane
 	 */
 	public Line(int x0, int y0, int x1, int y1, int depth) {
-		makeLine(x0,y0,x1,y1, depth);
+		this.x0 = x0;
+		this.y0 = y0;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.depth = depth;
 	}
 	
 	/**
@@ -52,53 +63,31 @@ public class Line implements Iterable<Point> {
 	 * @param x1 horizontal value of point 2
 	 * @param y1 vertical value of point 2
 	 * @param depth of the XY plane
-	 * @see <a href="https://en.wikipedia.org/wiki/Bresenham's_line_algorithm">Bresenham's line algorithm</a href>
+	 * @see LineWalker
 	 */
 	private void makeLine(int x0, int y0, int x1, int y1, int depth) {
 		points = new ArrayList<Point>();
-		int dx = Math.abs(x0-x1);
-		int dy = Math.abs(y0-y1);
-		int err = dx-dy;
-		
-		int sx = x0 < x1 ? 1 : -1;
-		int sy = y0 < y1 ? 1 : -1;
-		
-		while (true) {
-			points.add(new Point(x0, y0, depth));
-			if (x0 == x1 && y0 == y1)
-				break;
-			
-			int e2 = err * 2;
-			if (e2 > -dx) {
-				err -= dy;
-				x0 += sx;
-			}
-			if (e2 < dx) {
-				err += dx;
-				y0 += sy;
-			}
-		}
+		LineWalker walker = new LineWalker().reset(x0, y0, x1, y1);
+		while (walker.next())
+			points.add(new Point(walker.x(), walker.y(), depth));
 	}
 	
 	/** Returns the angle made by this line starting from an origin and the unit vector {@code (1,0,0)}. */
 	public double radialAngle() {
-		if (points.size() < 2)
+		int dx = x1 - x0, dy = y1 - y0;
+		if (dx == 0 && dy == 0)
 			return 0;
 		
-		Point p1 = points.get(points.size()-1).subtract(points.get(0));
-		Point p2 = new Point(1, 0, 0);
-		
-		double cos = p1.scalarProductXY(p2) / (p1.magnitudeXY() * p2.magnitudeXY());
-		 // = p1.x / p1.magnitude();
+		double cos = dx / Math.sqrt(dx*dx + dy*dy);
 		double acos = Math.acos(cos) * 180 / Math.PI;
 		
-		return  p1.y < 0 ? 360 - acos : acos;
+		return  dy < 0 ? 360 - acos : acos;
 	}
 	
 	public Iterator<Point> iterator(){
-		return points.iterator();
+		return getPoints().iterator();
 	}
 	
 	
 
-}
+}
\ No newline at end of file
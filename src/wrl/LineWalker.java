@@ -0,0 +1,113 @@
+package wrl;
+
+/**
+ * Walks the cells of a straight line one at a time without allocating, taking the same steps as {@linkplain Line}.
+ * A walker is reset to a new line and then advanced with {@linkplain #next()}, reading the current cell from {@linkplain #x()} and {@linkplain #y()},
+ * so callers that stop at the first obstruction never compute the rest of the line. Lines covered by the walker's {@linkplain RayTable}
+ * are read from it, longer lines are computed with <a href="https://en.wikipedia.org/wiki/Bresenham's_line_algorithm">Bresenham's line algorithm</a href>.
+ * <pre>
+ * walker.reset(x0, y0, x1, y1);
+ * while (walker.next())
+ *     visit(walker.x(), walker.y());
+ * </pre>
+ * @author Arun Sundaram
+ *
+ */
+public class LineWalker {
+
+	private RayTable rays;
+
+	private int x;
+	/** Returns the horizontal position of the current cell. */
+	public int x() { return x; }
+
+	private int y;
+	/** Returns the vertical position of the current cell. */
+	public int y() { return y; }
+
+	private int endX, endY;
+	private int sx, sy;
+	/** {@code true} until the first call to {@linkplain #next()} after a reset. */
+	private boolean atStart;
+
+	/** Index of the next step in the ray table, or {@code -1} if the line is computed. */
+	private int step;
+	private int stepEnd;
+	/** Absolute distances and error term of a computed line. */
+	private int dx, dy, err;
+
+	/** Creates a walker that reads lines from {@linkplain RayTable#SHARED}. */
+	public LineWalker() {
+		this(RayTable.SHARED);
+	}
+
+	/** @param rays - table of precomputed lines, or {@code null} to compute every line */
+	public LineWalker(RayTable rays) {
+		this.rays = rays;
+	}
+
+	/** Starts walking the line from ({@code x0}, {@code y0}) to ({@code x1}, {@code y1}). Returns this walker. */
+	public LineWalker reset(int x0, int y0, int x1, int y1) {
+		x = x0;
+		y = y0;
+		endX = x1;
+		endY = y1;
+		sx = x0 < x1 ? 1 : -1;
+		sy = y0 < y1 ? 1 : -1;
+		dx = Math.abs(x0 - x1);
+		dy = Math.abs(y0 - y1);
+		atStart = true;
+		if (rays != null && rays.covers(dx, dy)) {
+			step = rays.start(dx, dy);
+			stepEnd = rays.end(dx, dy);
+		} else {
+			step = -1;
+			err = dx - dy;
+		}
+		return this;
+	}
+
+	/** @see #reset(int, int, int, int) */
+	public LineWalker reset(Point p0, Point p1) {
+		return reset(p0.x, p0.y, p1.x, p1.y);
+	}
+
+	/**
+	 * Moves to the next cell of the line. The first call after a reset stays on the start of the line.
+	 * @return {@code false} if the end of the line was already reached
+	 */
+	public boolean next() {
+		if (atStart) {
+			atStart = false;
+			return true;
+		}
+		if (step >= 0) {
+			if (step == stepEnd)
+				return false;
+			byte flags = rays.step(step++);
+			if ((flags & RayTable.STEP_X) != 0)
+				x += sx;
+			if ((flags & RayTable.STEP_Y) != 0)
+				y += sy;
+			return true;
+		}
+		if (x == endX && y == endY)
+			return false;
+		int e2 = err * 2;
+		if (e2 > -dx) {
+			err -= dy;
+			x += sx;
+		}
+		if (e2 < dx) {
+			err += dx;
+			y += sy;
+		}
+		return true;
+	}
+
+	/** Returns {@code true} if the current cell is the end of the line. */
+	public boolean atEnd() {
+		return x == endX && y == endY;
+	}
+
+}
@@ -0,0 +1,80 @@
+package wrl;
+
+import java.util.Arrays;
+
+/**
+ * A notification sent to a {@linkplain CreatureAI}. It keeps its format template and arguments and is only turned into text
+ * when {@linkplain #text()} is first called, so messages that are never displayed are never formatted.
+ * <br>Templates are the {@code String} constants of the code that sends them, so equal messages usually share the same template instance.
+ * @author Arun Sundaram
+ *
+ */
+public class Message {
+
+	private static final Object[] NO_ARGS = {};
+
+	/** {@code true} if the template is a verb phrase describing what {@code actor} did. */
+	private final boolean action;
+	/** Name of the creature that acted, {@code null} if the receiver acted. */
+	private final String actor;
+	private final String template;
+	private final Object[] args;
+	private String text;
+
+	private Message(boolean action, String actor, String template, Object[] args) {
+		this.action = action;
+		this.actor = actor;
+		this.template = template;
+		this.args = args == null ? NO_ARGS : args;
+	}
+
+	/** Creates a message that reads as {@code String.format(template, args)}. */
+	public static Message of(String template, Object ... args) {
+		return new Message(false, null, template, args);
+	}
+
+	/**
+	 * Creates a message describing an action that starts with a verb, such as {@code "drop a %s"}.
+	 * It reads as "You drop a ..." if {@code actor} is {@code null} and otherwise as "The {@code actor} drops a ...".
+	 */
+	public static Message action(String actor, String template, Object ... args) {
+		return new Message(true, actor, template, args);
+	}
+
+	/** Returns the text of this message, formatting it the first time. */
+	public String text() {
+		if (text == null) {
+			if (!action)
+				text = String.format(template, args);
+			else if (actor == null)
+				text = String.format("You " + template + ".", args);
+			else
+				text = String.format(String.format("The %s %s.", actor, Grammar.makeThirddPerson(template)), args);
+		}
+		return text;
+	}
+
+	/** Returns {@code true} if {@code name} appears in the template, the actor or a {@code String} argument, without formatting the message. */
+	public boolean mentions(String name) {
+		if (template.contains(name) || (actor != null && actor.contains(name)))
+			return true;
+		for (Object arg : args)
+			if (arg instanceof String && ((String) arg).contains(name))
+				return true;
+		return false;
+	}
+
+	/** Returns {@code true} if {@code other} would read the same as this message. */
+	public boolean sameAs(Message other) {
+		if (other == this)
+			return true;
+		if (other == null || action != other.action || actor != other.actor && (actor == null || !actor.equals(other.actor)))
+			return false;
+		return template.equals(other.template) && Arrays.equals(args, other.args);
+	}
+
+	public String toString() {
+		return text();
+	}
+
+}
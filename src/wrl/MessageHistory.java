@@ -1,93 +1,96 @@
 package wrl;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * This class manages a chronological message history.
+ * {@linkplain Message}s are kept in a ring buffer and only formatted when {@linkplain #get(int, int)} returns them.
+ * A message that reads the same as the one before it is counted on that entry and displayed as "... x2".
  * @author Arun Sundaram
  *
  */
 public class MessageHistory {
-	
-	private String[] messageHistory;
-	private int index;
-	private int messageCount;
+
+	private Message[] messageHistory;
+	/** Times each entry was repeated in a row. */
+	private int[] repeats;
+	/** Total number of entries ever added. The newest is at {@code (added-1) % maxMessages}. */
+	private long added;
 	private int maxMessages;
 	private int newMessages = 1;
 	private boolean resetNewMessages = false;
-	
-	
+
+
 	public MessageHistory(int maxMessages) {
 		this.maxMessages = maxMessages;
-		this.messageHistory = new String[maxMessages];
-		this.index = 0;
-		this.messageCount = 0;
+		this.messageHistory = new Message[maxMessages];
+		this.repeats = new int[maxMessages];
 	}
-	
-	/** {@code maxMessages} defaults to 1024 */
+
+	/** {@code maxMessages} defaults to 16384 */
 	public MessageHistory() {
-		this(1024);
+		this(1 << 14);
 	}
-	
+
 	/** Returns the total number of messages in history. */
 	public int size() {
-		return messageCount;
+		return (int) Math.min(added, maxMessages);
 	}
-	
+
 	/** Returns the maximum number of messages in the history. */
 	public int maxHistory() {
 		return maxMessages;
 	}
 
-	/** Returns the number of messages added since both {@linkplain #add(String)} and {@linkplain #get(int, int)} were called. */
+	/** Returns the number of messages added since both {@linkplain #add(Message)} and {@linkplain #get(int, int)} were called. */
 	public int newMessages() {
 		return newMessages;
 	}
-	
-	/** Adds the message to the history. If {@linkplain #get(int, int)} was called before this, it resets {@code newMessages} to zero. */
+
+	/** @see #add(Message) */
 	public void add(String message) {
+		add(Message.of("%s", message));
+	}
+
+	/**
+	 * Adds the message to the history. If {@linkplain #get(int, int)} was called before this, it resets {@code newMessages} to zero.
+	 * A message that reads the same as the newest one increases its count instead of taking a new entry.
+	 */
+	public void add(Message message) {
 		if (resetNewMessages) {
 			newMessages = 0;
 			resetNewMessages = false;
 		}
+		int newest = (int) ((added - 1) % maxMessages);
+		if (added > 0 && message.sameAs(messageHistory[newest])) {
+			repeats[newest]++;
+			newMessages = Math.max(newMessages, 1);
+			return;
+		}
+		int index = (int) (added % maxMessages);
 		messageHistory[index] = message;
-		index = (index + 1) %  maxMessages;
-		messageCount = Math.min(maxMessages, messageCount + 1);
+		repeats[index] = 1;
+		added++;
 		newMessages++;
 	}
-	
-	/** 
+
+	/**
 	 * Returns a list of messages in order of creation.
 	 * @param last - the most recent message to retrieve (0 would be most recent)
-	 * @param count - the maximum number of messages to retrieve ending with {@code last} 
+	 * @param count - the maximum number of messages to retrieve ending with {@code last}
 	 * @return
 	 */
 	public List<String> get(int last, int count) {
 		resetNewMessages = true;
 		List<String> out = new ArrayList<String>();
-		if (count >= messageCount) {
-			for (String s : messageHistory) {
-				if (s == null)
-					break;
-				else
-					out.add(s);
-			}
-			return out;
-		}
-		
-		int earlyIndex = (index - last - count + maxMessages);
-		earlyIndex %= maxMessages;
-		int i = index-last;
-		while (i != earlyIndex) {
-			i = (i-1+maxMessages) % maxMessages;
-			if (messageHistory[i] == null)
-				break;
-			out.add(messageHistory[i]);
+		long end = added - Math.max(0, last);
+		long start = Math.max(added - size(), end - count);
+		for (long i = start; i < end; i++) {
+			int index = (int) (i % maxMessages);
+			String text = messageHistory[index].text();
+			out.add(repeats[index] > 1 ? text + " x" + repeats[index] : text);
 		}
-		
-		Collections.reverse(out);
 		return out;
 	}
 
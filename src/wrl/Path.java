@@ -1,39 +1,69 @@
 package wrl;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A continuous path a creature can take to reach a given ({@code x}, {@code y}) location it the same XY plane.
+ * The path is stored as packed {@code y*width + x} cells; {@linkplain #points()} builds {@linkplain Point}s only when asked.
  * @author Arun Sundaram
  *
  */
 public class Path {
-	
+
 	private static PathFinder pf = new PathFinder();
-	
+
+	private World world;
+	private int[] cells;
+	private int width;
+	private int z;
+
 	private List<Point> points;
-	public List<Point> points() { return points; }
-	
+	/** Returns the {@linkplain Point}s of this path, excluding the start and including the end, or {@code null} if no path was found. */
+	public List<Point> points() {
+		if (points == null && cells != null) {
+			points = new ArrayList<Point>(cells.length);
+			for (int i=0; i<cells.length; i++)
+				points.add(world.point(x(i), y(i), z));
+		}
+		return points;
+	}
+
+	/** Returns {@code true} if a path was found. */
+	public boolean exists() { return cells != null; }
+
+	/** Returns the number of steps in the path, or {@code 0} if no path was found. */
+	public int size() { return cells == null ? 0 : cells.length; }
+
+	/** Returns the horizontal coordinate of step {@code i}. */
+	public int x(int i) { return cells[i] % width; }
+
+	/** Returns the vertical coordinate of step {@code i}. */
+	public int y(int i) { return cells[i] / width; }
+
 	/**
-	 * Makes a {@linkplain List} of {@linkplain Point}s that form a continuous path from a {@linkplain Creature} to a location ({@code x}, {@code y}).
+	 * Makes a continuous path from a {@linkplain Creature} to a location ({@code x}, {@code y}).
 	 * @param creature - creature looking for a path to navigate
-	 * @param x - horizontal coordinate 
+	 * @param x - horizontal coordinate
 	 * @param y - vertical coordinate
 	 */
 	public Path(Creature creature, int x, int y) {
-		points = pathFind(creature, x, y, 300);
+		this.world = creature.world();
+		this.width = world.width();
+		this.z = creature.z();
+		this.cells = pf.findPath(creature, creature.x(), creature.y(), x, y, z, 300);
 	}
-	
-	/** Returns a {@linkplain List} of {@linkplain Point}s that form a continuous path from a {@linkplain Creature} to a location ({@code x}, {@code y}). 
+
+	/** Returns a {@linkplain List} of {@linkplain Point}s that form a continuous path from a {@linkplain Creature} to a location ({@code x}, {@code y}).
 	 * <br>Will return {@code null} if no path is found.
 	 * @param creature - creature looking for a path to navigate
-	 * @param x - horizontal coordinate 
+	 * @param x - horizontal coordinate
 	 * @param y - vertical coordinate
 	 * @param tries - maximum attempts to make continuous path
 	 * @see PathFinder#findPath(Creature, Point, Point, int)
 	 */
 	public List<Point> pathFind(Creature creature, int x, int y, int tries){
-		return pf.findPath(creature, creature.location(), new Point(x, y, creature.z()), tries);
+		return pf.findPath(creature, creature.location(), creature.world().point(x, y, creature.z()), tries);
 	}
 
 }
@@ -1,134 +1,210 @@
 package wrl;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
  * PathFinder will attempt to build a path between two {@linkplain Point}s that a {@linkplain Creature} can navigate.
  * Uses the <a href="https://en.wikipedia.org/wiki/A*_search_algorithm">A* search algorithm</a href>.
+ * <br>Search state is held in flat {@code int} arrays sized to a level and reused between searches.
+ * A generation stamp marks which cells belong to the current search so the arrays never need clearing.
+ * Cells are packed as {@code y*width + x}.
  * @author Arun Sundaram
  * @see <a href="https://en.wikipedia.org/wiki/A*_search_algorithm">A* search algorithm</a href>
  */
 public class PathFinder {
-	
-	private Point end;
-	private HashSet<Point> open;
-	private HashSet<Point> closed;
-	private PriorityQueue<Point> queue;	// TODO use TreeMap for faster remove(x)?
-	private HashMap<Point, Point> parents;
-	private HashMap<Point, Integer> totalCost;
-	
+
+	private static final int[] DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+	private static final int[] DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+	private int width;
+	private int height;
+
+	/** Cost in steps from the start to each cell. */
+	private int[] costTo;
+	/** Cost from the start plus the heuristic cost to the end. */
+	private int[] totalCost;
+	private int[] parent;
+	/** Generation in which each cell was discovered. */
+	private int[] seen;
+	/** Generation in which each cell was closed. */
+	private int[] closed;
+	private int generation;
+
+	/** Binary min-heap of cells keyed by {@linkplain #totalCost}. */
+	private int[] heap;
+	/** Position of each open cell in the {@linkplain #heap}. */
+	private int[] heapIndex;
+	private int heapSize;
+
 	public PathFinder() {
-		this.open = new HashSet<Point>();
-		this.closed = new HashSet<Point>();
-		this.queue =  new PriorityQueue<Point>( (p1, p2) -> totalCost(p1, end) - totalCost(p2, end) );
-		this.parents = new HashMap<Point, Point>();
-		this.totalCost = new HashMap<Point, Integer>();
-	}
-	
-	/** returns the number of {@linkplain Point}s along a straight line between {@code from} and {@code to} */
-	private int heuristicCost(Point from, Point to) {
-		return Math.max(Math.abs(to.x - from.x), Math.abs(to.y - from.y));
+		this.width = 0;
+		this.height = 0;
 	}
-	
-	/** Counts the number of {@linkplain Point}s between {@code from} and {@code start} by recursively iterating through {@code from}'s parents until {@code null} is reached. */
-	private int costToGetTo(Point from) {
-		return parents.get(from) == null ? 0 : 1 + costToGetTo(parents.get(from));
+
+	/** Resizes the search arrays if the level dimensions have changed and advances the generation. */
+	private void prepare(World world) {
+		if (world.width() != width || world.height() != height || costTo == null) {
+			width = world.width();
+			height = world.height();
+			int size = width * height;
+			costTo = new int[size];
+			totalCost = new int[size];
+			parent = new int[size];
+			seen = new int[size];
+			closed = new int[size];
+			heap = new int[size];
+			heapIndex = new int[size];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(seen, 0);
+			Arrays.fill(closed, 0);
+			generation = 1;
+		}
+		heapSize = 0;
 	}
-	
-	/**Finds the sum of {@linkplain #costToGetTo(Point from)} and {@linkplain #heuristicCost(Point from, Point to)}.
-	 * The method will return a memoized result or store the result in the memo before returning.  */
-	private int totalCost(Point from, Point to) {
-		if (totalCost.containsKey(from))
-			return totalCost.get(from);
-		int cost = costToGetTo(from) + heuristicCost(from, to);
-		totalCost.put(from, cost);
-		return cost;
+
+	/** returns the number of cells along a straight line between ({@code x}, {@code y}) and ({@code ex}, {@code ey}) */
+	private int heuristicCost(int x, int y, int ex, int ey) {
+		return Math.max(Math.abs(ex - x), Math.abs(ey - y));
 	}
-	
-	/** Finds a path as an {@linkplain ArrayList}<{@linkplain Point}> that the {@code creature} can traverse from {@code start} to {@code end}. 
+
+	/** Finds a path as an {@linkplain ArrayList}<{@linkplain Point}> that the {@code creature} can traverse from {@code start} to {@code end}.
 	 * Will return {@code null} if no path can be made before {@code maxTries} is reached.
-	 * @param creature - the entity traversing the path according to {@linkplain Creature#canEnter(Point)}
+	 * @param creature - the entity traversing the path according to {@linkplain Creature#canEnter(int, int, int)}
 	 * @param start - first Point in the path
 	 * @param end - last Point in the path
 	 * @param maxTries - the maximum number of attempts to find a path before returning {@code null}
 	 * @return An ArrayList of Points in order from {@code start} to {@code end} or {@code null} if no path found.
 	 */
 	public ArrayList<Point> findPath(Creature creature, Point start, Point end, int maxTries){
-		this.end = end;
-		open.clear(); closed.clear(); parents.clear(); totalCost.clear(); queue.clear();
-		open.add(start);
-		queue.add(start);
-		
-		for (int tries = 0; tries < maxTries && open.size() > 0; tries++) {
-			Point closest = queue.remove();
-			open.remove(closest);
-			closed.add(closest);
-			
-			if (closest.equals(end))
-				return createPath(start, closest);
-			
-			checkNeighbors(creature, end, closest);
+		int[] cells = findPath(creature, start.x, start.y, end.x, end.y, start.z, maxTries);
+		if (cells == null)
+			return null;
+		ArrayList<Point> path = new ArrayList<Point>(cells.length);
+		for (int cell : cells)
+			path.add(creature.world().point(cell % width, cell / width, start.z));
+		return path;
+	}
+
+	/** Finds a path that the {@code creature} can traverse from ({@code sx}, {@code sy}) to ({@code ex}, {@code ey}) on level {@code z}.
+	 * The end cell is always considered enterable so a path can lead up to an occupied target.
+	 * @param maxTries - the maximum number of cells to expand before returning {@code null}
+	 * @return the cells of the path packed as {@code y*width + x}, excluding the start and including the end, or {@code null} if no path was found.
+	 */
+	public int[] findPath(Creature creature, int sx, int sy, int ex, int ey, int z, int maxTries) {
+		World world = creature.world();
+		if (!world.isInBounds(sx, sy, z) || !world.isInBounds(ex, ey, z))
+			return null;
+		prepare(world);
+		int start = sy*width + sx;
+		int end = ey*width + ex;
+
+		seen[start] = generation;
+		costTo[start] = 0;
+		totalCost[start] = heuristicCost(sx, sy, ex, ey);
+		parent[start] = -1;
+		push(start);
+
+		for (int tries = 0; tries < maxTries && heapSize > 0; tries++) {
+			int closest = pop();
+			closed[closest] = generation;
+
+			if (closest == end)
+				return createPath(start, end);
+
+			checkNeighbors(creature, world, closest, end, ex, ey, z);
 		}
 		return null;
 	}
 
-	/** Attempts to parent the current closest {@linkplain Point} to its neighbors. 
-	 * If the neighbors are found for the first time and can be entered by the {@code creature}, they are added to the open set.  */
-	private void checkNeighbors(Creature creature, Point end, Point closest) {
-		for (Point neighbor : closest.neighbors8()) {
-			if (closed.contains(neighbor) || !creature.canEnter(neighbor) && !neighbor.equals(end))
+	/** Relaxes the neighbors of the {@code closest} cell, opening newly found cells the {@code creature} can enter
+	 * and re-queueing open cells that are reached more cheaply through {@code closest}. */
+	private void checkNeighbors(Creature creature, World world, int closest, int end, int ex, int ey, int z) {
+		int x = closest % width, y = closest / width;
+		int cost = costTo[closest] + 1;
+		for (int i=0; i<8; i++) {
+			int nx = x + DX[i], ny = y + DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
 				continue;
-			
-			if (!open.contains(neighbor))
-				reparentNeighbor(closest, neighbor);
-			else
-				reparentNeighborIfNecessary(closest, neighbor);
+			int neighbor = ny*width + nx;
+			if (closed[neighbor] == generation)
+				continue;
+			if (neighbor != end && !world.isGround(nx, ny, z))
+				continue;
+
+			if (seen[neighbor] != generation) {
+				if (neighbor != end && !creature.canEnter(nx, ny, z))
+					continue;
+				seen[neighbor] = generation;
+				costTo[neighbor] = cost;
+				totalCost[neighbor] = cost + heuristicCost(nx, ny, ex, ey);
+				parent[neighbor] = closest;
+				push(neighbor);
+			} else if (cost < costTo[neighbor]) {
+				totalCost[neighbor] -= costTo[neighbor] - cost;
+				costTo[neighbor] = cost;
+				parent[neighbor] = closest;
+				siftUp(heapIndex[neighbor]);
+			}
 		}
 	}
-	
-	/** Changes the {@code parent} of the {@code child}, removing the {@code child}'s memoized totalCost since it is no longer valid */
-	private void reparent(Point child, Point parent) {
-		parents.put(child, parent);
-		totalCost.remove(child);
+
+	/** Returns a path from the {@code start} to the {@code end} through their parents, excluding {@code start}. */
+	private int[] createPath(int start, int end){
+		int[] path = new int[costTo[end]];
+		for (int cell = end, i = path.length - 1; cell != start; cell = parent[cell])
+			path[i--] = cell;
+		return path;
 	}
-	
-	/** Sets the parent of the child and adds the child to the queue */
-	private void reparentNeighbor(Point closest, Point neighbor) {
-		reparent(neighbor, closest);
-		open.add(neighbor);
-		queue.add(neighbor);
+
+	private void push(int cell) {
+		heap[heapSize] = cell;
+		heapIndex[cell] = heapSize;
+		siftUp(heapSize++);
 	}
 
-	/** If the distance from start to neighbor is closer with the new parent, the parent is changed. */
-	private void reparentNeighborIfNecessary(Point closest, Point neighbor) {
-		Point originalParent = parents.get(neighbor);
-		double previousCost = costToGetTo(neighbor);
-		reparent(neighbor, closest);
-		double reparentCost = costToGetTo(neighbor);
-		
-		if (reparentCost < previousCost) {
-			open.remove(neighbor);
-			queue.remove(neighbor);
-			// TODO re-add to queue?
-		} else {
-			reparent(neighbor, originalParent);
+	private int pop() {
+		int top = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0) {
+			heap[0] = last;
+			heapIndex[last] = 0;
+			siftDown(0);
 		}
+		return top;
 	}
-	
-	/** Returns a path from the {@code start} to the {@code end} through their parents as an {@linkplain ArrayList}<{@linkplain Point}>  */
-	private ArrayList<Point> createPath(Point start, Point end){
-		ArrayList<Point> path = new ArrayList<Point>();
-		while (!end.equals(start)) {
-			path.add(end);
-			end = parents.get(end);
+
+	private void siftUp(int index) {
+		int cell = heap[index];
+		while (index > 0) {
+			int up = (index - 1) >>> 1;
+			if (totalCost[heap[up]] <= totalCost[cell])
+				break;
+			heap[index] = heap[up];
+			heapIndex[heap[index]] = index;
+			index = up;
 		}
-		
-		Collections.reverse(path);
-		return path;
+		heap[index] = cell;
+		heapIndex[cell] = index;
+	}
+
+	private void siftDown(int index) {
+		int cell = heap[index];
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2*index + 1;
+			if (child + 1 < heapSize && totalCost[heap[child + 1]] < totalCost[heap[child]])
+				child++;
+			if (totalCost[cell] <= totalCost[heap[child]])
+				break;
+			heap[index] = heap[child];
+			heapIndex[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = cell;
+		heapIndex[cell] = index;
 	}
 
 }
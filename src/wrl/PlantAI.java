@@ -56,13 +56,35 @@ public class PlantAI extends CreatureAI {
 	}
 	
 	
+	/**
+	 * Spreads as if {@code rounds} updates of this plant and its children had passed. Each round gives one chance to spread per plant,
+	 * so the number of rounds until the next spawn is drawn from a geometric distribution instead of rolling every chance.
+	 */
+	public void fastForward(int rounds) {
+		if (parent != null || spawnChance <= 0)
+			return;
+		while (rounds > 0 && children.size() < maxCreatures) {
+			double chance = 1 - Math.pow(1 - spawnChance, 1 + children.size());
+			double wait = chance >= 1 ? 1 : 1 + Math.floor(Math.log(1 - random().nextDouble()) / Math.log(1 - chance));
+			if (wait > rounds)
+				return;
+			rounds -= (int) wait;
+			spawnChild();
+		}
+	}
+	
 	/** Attempts to create a child plant. Checks {@link #canEnter(Point)} for valid spawn location. */
 	protected void spread() {
-		if (children.size() >= maxCreatures || Math.random() > spawnChance)
+		if (children.size() >= maxCreatures || random().nextDouble() > spawnChance)
 			return;
+		spawnChild();
+	}
+	
+	/** Creates a child plant at a random nearby location if it can enter it. */
+	private void spawnChild() {
 		Point p  = new Point(
-			creature.x() + (int)(Math.random()*5) - 3,
-			creature.y() + (int)(Math.random()*5) - 3,
+			creature.x() + random().nextInt(5) - 3,
+			creature.y() + random().nextInt(5) - 3,
 			creature.z() );
 		
 //		p = creature.location().add((int)(Math.random()*5) - 3, (int)(Math.random()*5) - 3, 0);
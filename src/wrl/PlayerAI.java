@@ -28,12 +28,18 @@ public class PlayerAI extends CreatureAI {
 		}
 	}
 	
-	/** Sends notifications to the {@linkplain MessageHistory}. */
-	public void onNotify(String message) {
-		if (!message.contains(creature.name() + " corpse"))
+	private String corpseName;
+	
+	/** Sends notifications to the {@linkplain MessageHistory}, except those about the player's own corpse. */
+	public void onNotify(Message message) {
+		if (corpseName == null)
+			corpseName = creature.name() + " corpse";
+		if (!message.mentions(corpseName))
 			messageHistory.add(message);
 	}
 	
+	public boolean listens() { return true; }
+	
 	/** Sets the list of known recipies. */
 	public void setRecipes(ArrayList<Recipe> recipes) {
 		this.recipes = recipes;
@@ -5,9 +5,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * A point in 3-dimensional space.
+ * <br>Points are immutable. Locations in a {@linkplain World} should be taken from {@linkplain World#point(int, int, int)},
+ * which keeps one instance per cell, and loops that scan many cells can use a {@linkplain PointCursor} instead.
  * @author Arun Sundaram
  *
  */
@@ -70,10 +73,21 @@ public class Point {
 	
 	/**
 	 * Returns eight neighboring Points in random order
+	 * @param random - the random source used to shuffle the Points
+	 * @return an {@linkplain ArrayList} of eight Points.
+	 */
+	public List<Point> neighbors8(Random random){
+		List<Point> neighbors = neighbors8();
+		Collections.shuffle(neighbors, random);
+		return neighbors;
+	}
+	
+	/**
+	 * Returns eight neighboring Points in a fixed order
 	 * @return an {@linkplain ArrayList} of eight Points.
 	 */
 	public List<Point> neighbors8(){
-		List<Point> neighbors = new ArrayList<Point>();
+		List<Point> neighbors = new ArrayList<Point>(8);
 		for (int i=-1; i<2; i++) {
 			for (int j=-1; j<2; j++) {
 				if (i==0 && j==0)
@@ -81,7 +95,6 @@ public class Point {
 				neighbors.add(new Point(x+i, y+j, z));
 			}
 		}
-		Collections.shuffle(neighbors);
 		return neighbors;
 	}
 	
@@ -92,7 +105,7 @@ public class Point {
 	
 	/** @see #subtract(Point) */
 	public Point subtract(int dx, int dy, int dz) {
-		return subtract(new Point(dx, dy, dz));
+		return new Point(x - dx, y - dy, z - dz);
 	}
 	
 	/** Returns a new Point equals to adding the components of {@code p} to {@code this}.*/
@@ -102,7 +115,7 @@ public class Point {
 	
 	/** @see #add(Point) */
 	public Point add(int dx, int dy, int dz) {
-		return add(new Point (dx , dy, dz));
+		return new Point(x + dx, y + dy, z + dz);
 	}
 	
 	/** Returns the magnitude of a line from the origin to this point in the XY plane. */
@@ -0,0 +1,74 @@
+package wrl;
+
+/**
+ * A mutable location used by loops that scan many cells of a {@linkplain World}.
+ * Moving the cursor allocates nothing, and {@linkplain #point()} returns the world's shared {@linkplain Point} of the cell when one is needed.
+ * @author Arun Sundaram
+ *
+ */
+public class PointCursor {
+
+	private World world;
+
+	private int x;
+	public int x() { return x; }
+
+	private int y;
+	public int y() { return y; }
+
+	private int z;
+	public int z() { return z; }
+
+	public PointCursor(World world) {
+		this.world = world;
+	}
+
+	/** Moves the cursor to ({@code x}, {@code y}, {@code z}) and returns it. */
+	public PointCursor set(int x, int y, int z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	/** Moves the cursor to {@code p} and returns it. */
+	public PointCursor set(Point p) {
+		return set(p.x, p.y, p.z);
+	}
+
+	/** Moves the cursor by ({@code dx}, {@code dy}, {@code dz}) and returns it. */
+	public PointCursor move(int dx, int dy, int dz) {
+		return set(x + dx, y + dy, z + dz);
+	}
+
+	/** Returns the shared {@linkplain Point} of the cursor's cell. @see World#point(int, int, int) */
+	public Point point() {
+		return world.point(x, y, z);
+	}
+
+	/** @see World#isInBounds(int, int, int) */
+	public boolean isInBounds() {
+		return world.isInBounds(x, y, z);
+	}
+
+	/** @see World#tile(int, int, int) */
+	public Tile tile() {
+		return world.tile(x, y, z);
+	}
+
+	/** @see World#creature(int, int, int) */
+	public Creature creature() {
+		return world.creature(x, y, z);
+	}
+
+	/** @see World#item(int, int, int) */
+	public Item item() {
+		return world.item(x, y, z);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + ", " + y + ", " + z + ")";
+	}
+
+}
@@ -0,0 +1,98 @@
+package wrl;
+
+/**
+ * Precomputed steps of the <a href="https://en.wikipedia.org/wiki/Bresenham's_line_algorithm">Bresenham lines</a href> from the origin
+ * to every offset up to {@linkplain #radius()} cells away horizontally and vertically. Used by {@linkplain LineWalker} so short lines,
+ * such as lines of sight and throws, are walked by reading a table instead of updating an error term.
+ * <br>The steps of a line only depend on the absolute horizontal and vertical distances, so the table holds the first quadrant and
+ * the walker mirrors it into the other three. Tables never change after they are built and can be shared.
+ * @author Arun Sundaram
+ *
+ */
+public class RayTable {
+
+	/** Step flag for moving horizontally. */
+	static final byte STEP_X = 1;
+	/** Step flag for moving vertically. */
+	static final byte STEP_Y = 2;
+
+	/** Table shared by the walkers of creatures and screens. Covers lines of sight, throws and charges. */
+	public static final RayTable SHARED = new RayTable(32);
+
+	private int radius;
+	/** Returns the largest horizontal or vertical distance covered by this table. */
+	public int radius() { return radius; }
+
+	/** Index of the first step of each ray in {@link #steps}, indexed as {@code dy*(radius+1) + dx}, with one extra entry marking the end. */
+	private int[] starts;
+	/** {@link #STEP_X} and {@link #STEP_Y} flags of every step of every ray. */
+	private byte[] steps;
+
+	/** @param radius - the largest horizontal or vertical distance of the lines in the table */
+	public RayTable(int radius) {
+		this.radius = radius;
+		int side = radius + 1;
+		starts = new int[side*side + 1];
+		int total = 0;
+		for (int dy=0; dy<side; dy++)
+			for (int dx=0; dx<side; dx++)
+				total += trace(dx, dy, null, 0);
+		steps = new byte[total];
+		int n = 0;
+		for (int dy=0; dy<side; dy++) {
+			for (int dx=0; dx<side; dx++) {
+				starts[dy*side + dx] = n;
+				n += trace(dx, dy, steps, n);
+			}
+		}
+		starts[side*side] = n;
+	}
+
+	/**
+	 * Writes the steps of the line from the origin to ({@code dx}, {@code dy}) into {@code out} from {@code offset}, or only counts them if
+	 * {@code out} is {@code null}. Takes the same steps as {@linkplain Line}.
+	 * @return the number of steps
+	 */
+	private static int trace(int dx, int dy, byte[] out, int offset) {
+		int x = 0, y = 0, err = dx - dy, n = 0;
+		while (x != dx || y != dy) {
+			int e2 = err * 2;
+			byte step = 0;
+			if (e2 > -dx) {
+				err -= dy;
+				x++;
+				step |= STEP_X;
+			}
+			if (e2 < dx) {
+				err += dx;
+				y++;
+				step |= STEP_Y;
+			}
+			if (out != null)
+				out[offset + n] = step;
+			n++;
+		}
+		return n;
+	}
+
+	/** Returns {@code true} if the line to the offset ({@code dx}, {@code dy}) is in the table. */
+	public boolean covers(int dx, int dy) {
+		return Math.abs(dx) <= radius && Math.abs(dy) <= radius;
+	}
+
+	/** Returns the index of the first step of the ray to the absolute offset ({@code adx}, {@code ady}). */
+	int start(int adx, int ady) {
+		return starts[ady*(radius + 1) + adx];
+	}
+
+	/** Returns the index after the last step of the ray to the absolute offset ({@code adx}, {@code ady}). */
+	int end(int adx, int ady) {
+		return starts[ady*(radius + 1) + adx + 1];
+	}
+
+	/** Returns the step flags at {@code index}. */
+	byte step(int index) {
+		return steps[index];
+	}
+
+}
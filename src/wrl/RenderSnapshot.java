@@ -0,0 +1,82 @@
+package wrl;
+
+import java.awt.Color;
+
+/**
+ * The glyph, foreground and background of every cell of a rectangular view of one {@linkplain World} level, as seen by the player.
+ * {@linkplain #update(World, Creature, FieldOfView, int, int, int)} fills the view in one pass. Tiles, creatures, items and hazards are read by
+ * coordinates and colors come from shared tables, so an update allocates nothing unless a color is seen for the first time.
+ * @author Arun Sundaram
+ *
+ */
+public class RenderSnapshot {
+
+	/** Color of cells where a creature is detected but not seen. */
+	private static final Color DETECTED = Color.darkGray;
+	/** Color of remembered cells. */
+	private static final Color REMEMBERED = Color.darkGray.darker();
+
+	private int width;
+	public int width() { return width; }
+
+	private int height;
+	public int height() { return height; }
+
+	private char[] glyphs;
+	private Color[] foregrounds;
+	private Color[] backgrounds;
+
+	public RenderSnapshot(int width, int height) {
+		this.width = width;
+		this.height = height;
+		glyphs = new char[width * height];
+		foregrounds = new Color[width * height];
+		backgrounds = new Color[width * height];
+	}
+
+	/** Returns the glyph at ({@code x}, {@code y}) of the view. */
+	public char glyph(int x, int y) { return glyphs[y*width + x]; }
+
+	/** Returns the glyph's {@linkplain Color} at ({@code x}, {@code y}) of the view. */
+	public Color foreground(int x, int y) { return foregrounds[y*width + x]; }
+
+	/** Returns the background {@linkplain Color} at ({@code x}, {@code y}) of the view, or {@code null} for the default background. */
+	public Color background(int x, int y) { return backgrounds[y*width + x]; }
+
+	/**
+	 * Fills the view whose top left cell is ({@code left}, {@code top}) on level {@code z}.
+	 * Cells the player {@linkplain Creature#canSee(Point) can see} show their contents shaded by visibility,
+	 * cells with a detected creature show it in dark gray, and other cells show the remembered tile.
+	 * @param player - the viewer
+	 * @param fov - the player's {@linkplain FieldOfView}, already updated
+	 */
+	public void update(World world, Creature player, FieldOfView fov, int left, int top, int z) {
+		for (int y=0; y<height; y++) {
+			for (int x=0; x<width; x++) {
+				int i = y*width + x;
+				int wx = x + left, wy = y + top;
+				Point p = world.point(wx, wy, z);
+				Creature creature = world.creature(wx, wy, z);
+				boolean detects = creature != null && player.canDetect(p);
+
+				if (player.canSee(p)) {
+					Tile tile = world.tile(wx, wy, z);
+					Item item = world.item(wx, wy, z);
+					glyphs[i] = world.glyph(wx, wy, z, tile, creature, item, true, detects);
+					foregrounds[i] = fov.visibleColor(world.color(wx, wy, z, tile, creature, item, detects), fov.visibility(wx, wy, z));
+					backgrounds[i] = world.backgroundColor(wx, wy, z, creature);
+				} else if (detects) {
+					Tile tile = world.tile(wx, wy, z);
+					glyphs[i] = world.glyph(wx, wy, z, tile, creature, world.item(wx, wy, z), false, true);
+					foregrounds[i] = DETECTED;
+					backgrounds[i] = null;
+				} else {
+					glyphs[i] = fov.tile(wx, wy, z).glyph();
+					foregrounds[i] = REMEMBERED;
+					backgrounds[i] = null;
+				}
+			}
+		}
+	}
+
+}
@@ -30,11 +30,11 @@ public class RotfiendAI extends CreatureAI {
 		}
 		spitCooldown = Math.min(20, spitCooldown + 1);
 		double playerDistance = player.location().subtract(creature.location()).magnitudeXY();
-		if (playerDistance < 5 && spitCooldown == 20 && Math.random() < 0.1 && canSee(player.location())) {
+		if (playerDistance < 5 && spitCooldown == 20 && random().nextDouble() < 0.1 && canSee(player.location())) {
 			spit(player);
 			destination = player.location();
 		} else if (creature.canSee(player.location())) {
-			hunt(player.location());
+			hunt(player);
 		} else if (destination != null) {
 			hunt(destination);
 		} else {
@@ -57,7 +57,7 @@ public class RotfiendAI extends CreatureAI {
 		creature.doAction("explode");
 		Spell explosion = new Spell("necrophage explosion", 0, 2.0, 360, Spell.Delivery.RADIAL, new Effect(1) {
 			public void start(Creature target) {
-				int damage = (int) Math.max(0, ( Math.random() * 50) - target.defenseValue() ) + 1;
+				int damage = (int) Math.max(0, ( random().nextDouble() * 50) - target.defenseValue() ) + 1;
 //				target.commonAttack(creature, -damage, "%s took %d damage in the %s's explosion", target.name(), damage, creature.name()); //TODO fix damage notificaiton
 				target.knockBack(creature.location(), 2);
 				target.modifyHP(-damage, "explosion", creature);
@@ -0,0 +1,116 @@
+package wrl;
+
+/**
+ * Runs the game without a display. The world is generated lazily and populated as in {@linkplain wrl.screens.PlayScreen}
+ * and the player wanders randomly each turn. Every random decision comes from the {@linkplain World#random()} source,
+ * so two simulations with the same seed reach the same state after the same number of turns.
+ * <br>Usage: {@code java wrl.Simulation [seed] [turns]}
+ * @author Arun Sundaram
+ *
+ */
+public class Simulation {
+
+	private World world;
+	/** Returns the simulated {@linkplain World}. */
+	public World world() { return world; }
+
+	private Creature player;
+	/** Returns the simulated player. */
+	public Creature player() { return player; }
+
+	private FieldOfView fov;
+	/** Returns the player's {@linkplain FieldOfView}. */
+	public FieldOfView fov() { return fov; }
+
+	private MessageHistory messageHistory;
+
+	/** AP refreshes the world ran through before the player entered. Levels generated later are fast forwarded by as many. */
+	private int warmUpRounds;
+
+	private int turns;
+	/** Returns the number of player turns that have been simulated. */
+	public int turns() { return turns; }
+
+	/** Creates a simulation of the standard 90x31x10 world. */
+	public Simulation(long seed) {
+		this(90, 31, 10, seed);
+	}
+
+	/**
+	 * @param width - width of the world
+	 * @param height - height of the world
+	 * @param depth - number of levels
+	 * @param seed - seed of the world's random source
+	 */
+	public Simulation(int width, int height, int depth, long seed) {
+		world = new WorldBuilder(width, height, depth, seed)
+				.buildLazy();
+		StuffFactory factory = new StuffFactory(world, null);
+		world.setLevelPopulator(z -> {
+			factory.populateLevel(z);
+			world.fastForwardLevel(z, warmUpRounds);
+			if (player != null)
+				factory.populateMonsters(z, player);
+		});
+		world.loadLevel(0);
+		for (int i=0; i<10000; i++)
+			world.singleUpdate(null);
+		warmUpRounds = world.rounds();
+
+		messageHistory = new MessageHistory();
+		fov = new FieldOfView(world);
+		player = factory.newPlayer(messageHistory, fov, 0);
+		factory.populateMonsters(0, player);
+	}
+
+	/** Moves the player in a random direction, then updates the world until it is the player's turn again and freezes and evicts distant levels. */
+	public void step() {
+		if (player.isDead())
+			return;
+		fov.update(player.location(), player.visionRadius());
+		player.moveBy(world.random().nextInt(3) - 1, world.random().nextInt(3) - 1, 0);
+		world.update(player);
+		world.freezeLevelsFarFrom(player.z(), 1);
+		world.evictLevelsFarFrom(player.z(), 2);
+		turns++;
+	}
+
+	/** Simulates {@code turns} player turns or until the player dies. */
+	public void run(int turns) {
+		for (int i=0; i<turns && !player.isDead(); i++)
+			step();
+	}
+
+	/** Returns a hash of the tiles, items and creatures of the loaded levels. Equal seeds and turns give equal checksums. */
+	public long checksum() {
+		long hash = 17;
+		for (int z=0; z<world.depth(); z++) {
+			for (int y=0; y<world.height(); y++) {
+				for (int x=0; x<world.width(); x++) {
+					hash = 31*hash + world.tile(x, y, z).ordinal();
+					Item item = world.item(x, y, z);
+					if (item != null)
+						hash = 31*hash + item.name().hashCode();
+					Creature creature = world.creature(x, y, z);
+					if (creature != null)
+						hash = 31*hash + creature.name().hashCode() * 7 + creature.hp();
+				}
+			}
+		}
+		return 31*hash + player.hp();
+	}
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		int turns = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+		long start = System.nanoTime();
+		Simulation simulation = new Simulation(seed);
+		simulation.run(turns);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+
+		System.out.println("seed " + seed + ", " + simulation.turns() + " turns" + (simulation.player().isDead() ? " (player died)" : "")
+				+ ", checksum " + Long.toHexString(simulation.checksum()) + ", " + elapsed + " ms");
+	}
+
+}
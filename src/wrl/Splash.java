@@ -92,12 +92,12 @@ public class Splash {
 	public void applyEffects(World world, Point location, List<Effect> effects) {
 		if (effects == null || effects.isEmpty())
 			return;
+		PointCursor cursor = new PointCursor(world);
 		for (int i=0; i<splash.length; i++) {
 			for (int j=0; j < splash.length; j++) {
 				if ( !splash[i][j] )
 					continue;
-				Point p = new Point(location.x - splash.length/2 + i, location.y - splash.length/2 + j, location.z);
-				Creature c = world.creature(p);
+				Creature c = cursor.set(location.x - splash.length/2 + i, location.y - splash.length/2 + j, location.z).creature();
 				if (c != null)
 					for (Effect e : effects)			
 						c.addEffect( (Effect) e.clone() );
@@ -106,7 +106,7 @@ public class Splash {
 	}
 	
 	/**
-	 * Adds the Hazards to the Tile in the Splash region.
+	 * Adds the Hazards to the Tile in the Splash region. The clones are placed first and then added to the {@linkplain World} together.
 	 * @param world - the {@linkplain World} in which this exists
 	 * @param location - the location of the target this centers around
 	 * @param hazards - the {@linkplain Hazard}s to be applied to Tiles in the region
@@ -115,24 +115,25 @@ public class Splash {
 		if (hazards == null || hazards.isEmpty())
 			return;
 		spawnedHazards = new ArrayList<Hazard>();
+		PointCursor cursor = new PointCursor(world);
 		for (int i=0; i<splash.length; i++) {
 			for (int j=0; j < splash.length; j++) {
 				if ( !splash[i][j] )
 					continue;
-				Point p = new Point(location.x - splash.length/2 + i, location.y - splash.length/2 + j, location.z);
+				Point p = cursor.set(location.x - splash.length/2 + i, location.y - splash.length/2 + j, location.z).point();
 				for (Hazard h : hazards) {
 					Hazard h2 = (Hazard) h.clone();
+					h2.setLocation(p);
 					spawnedHazards.add(h2);
-					h2.relocate(p);
 				}
 			}
 		}
+		world.addAll(spawnedHazards);
 	}
 	
 	/** Removes any temporary Entities this splash has added to the world.  */
 	public void cleanUp(World world) {
-		for (Hazard h : spawnedHazards)
-			world.remove(h);
+		world.removeAll(spawnedHazards);
 	}
 	
 	@Override
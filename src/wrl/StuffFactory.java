@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.function.Supplier;
 
 import asciiPanel.AsciiPanel;
@@ -21,6 +22,7 @@ public class StuffFactory {
 	
 	private World world;
 	private PlayScreen playScreen;
+	private Random random;
 	
 	private Map<String, Color> potionColors;
 	private List<String> potionAppearances;
@@ -29,6 +31,7 @@ public class StuffFactory {
 	public StuffFactory (World world, PlayScreen playScreen) {
 		this.world = world;
 		this.playScreen = playScreen;
+		this.random = world.random();
 		setUpPotionAppearances();
 		setUpPotionRecipes();
 	}
@@ -45,10 +48,16 @@ public class StuffFactory {
 			public void update() {
 				this.duration--;
 				if (duration%50 == 0)
-					this.background = background.darker();
+					setBackground(background.darker());
 				modifyAP(-100);
 			}
 			public boolean updatePending() { return duration > 0; }
+			public void fastForward(int rounds) {
+				int end = Math.max(0, duration - rounds);
+				for (int d = Math.floorDiv(duration - 1, 50); d > Math.floorDiv(end - 1, 50); d--)
+					setBackground(background.darker());
+				duration = end;
+			}
 		};
 	}
 	
@@ -75,15 +84,15 @@ public class StuffFactory {
 		
 		List<ArrayList<String>> ingredients = new ArrayList<ArrayList<String>>();
 		
-		Collections.shuffle(monsterIngredients);
+		Collections.shuffle(monsterIngredients, random);
 		for (int i=0; i<potions.keySet().size(); i++) {
 			ArrayList<String> ig = new ArrayList<String>();
 			ig.add(monsterIngredients.get(i%monsterIngredients.size()));
 			ingredients.add(ig);
 		}
-		Collections.shuffle(ingredients);
+		Collections.shuffle(ingredients, random);
 		
-		Collections.shuffle(plantIngredients);
+		Collections.shuffle(plantIngredients, random);
 		int first = 0, dif = 1, plantSize = plantIngredients.size();
 		for (List<String> ig : ingredients) {
 			if (first == plantSize) {
@@ -93,7 +102,7 @@ public class StuffFactory {
 			ig.add(plantIngredients.get( (first+dif)%plantSize ));
 			first++;
 		}
-		Collections.shuffle(ingredients);
+		Collections.shuffle(ingredients, random);
 		
 		int index = 0;
 		for (String name : potions.keySet()) {
@@ -117,7 +126,85 @@ public class StuffFactory {
 		potionColors.put("light potion", AsciiPanel.brightWhite);
 		
 		potionAppearances = new ArrayList<String>(potionColors.keySet());
-		Collections.shuffle(potionAppearances);
+		Collections.shuffle(potionAppearances, random);
+	}
+	
+	/** Places the starting {@linkplain Item}s and plants on every level of the {@linkplain World}. */
+	public void populateLevels() {
+		for (int z=0; z<world.depth(); z++)
+			populateLevel(z);
+	}
+	
+	/** Places the starting {@linkplain Item}s and plants on level {@code z}. The victory item is placed on the bottom level. */
+	public void populateLevel(int z) {
+		if (z == world.depth() - 1)
+			newVictoryItem(z);
+		
+		randomArmor(z);
+		randomWeapon(z);
+
+		for (int i=0; i< world.width()*world.height()/20; i++)
+			newRock(z);
+		
+//		for (int i=0; i<4; i++) {
+			newWolfsbane(z);
+			newHornwort(z);
+			newWhiteMyrtle(z);
+			newCrowsEye(z);
+			newBlowall(z);
+			newSewantMushroom(8, 0.02, z);
+//		}
+	}
+	
+	/** Places the monsters that hunt the {@code player} on every level of the {@linkplain World}. */
+	public void populateMonsters(Creature player) {
+		for (int z=0; z<world.depth(); z++)
+			populateMonsters(z, player);
+	}
+	
+	/** Places the monsters that hunt the {@code player} on level {@code z}. */
+	public void populateMonsters(int z, Creature player) {
+		for (int i=0; i<10; i++)
+			newBat(z);
+		
+//		for (int i=0; i< 3; i++)
+//			newZombie(z, player);
+		
+		if (random.nextBoolean())
+			newRockTroll(z, player);
+		else
+			newIceTroll(z, player);
+		
+		if (random.nextBoolean())
+			newRotfiend(z, player);
+		else
+			newDevourer(z, player);
+		
+		if (random.nextBoolean())
+			newAlp(z, player);
+		else
+			newBruxa(z, player);
+		
+		for (int i=0; i<3; i++)
+			newDrowner(z, player);
+		
+		for (int i=0; i<1; i++) 
+			newDrownedDead(z,  player);
+		
+//		for (int i=0; i<3; i++)
+//			randomPotion(z);
+		
+		newGoblin(z, player);
+		
+//		for (int i=0; i<10; i++) newBlueMageSpellbook(0);
+//		boolean first = Math.random() < 0.5;
+//		if (first) {
+//			newBlueMageSpellbook(  (int)(Math.random()*3)  );
+//			newWhiteMageSpellbook( (int)(Math.random()*3) + 3  );
+//		} else {
+//			newBlueMageSpellbook(  (int)(Math.random()*3) + 3  );
+//			newWhiteMageSpellbook( (int)(Math.random()*3)  );
+//		}
 	}
 	
 	/** Creates a new player {@linkplain Creature} and places that at a random location at {@code depth}.} */
@@ -158,11 +245,11 @@ public class StuffFactory {
 				return super.canEnter(p) && world.tile(p) != Tile.WATER;
 			}
 		};
-		fungus.ai().setDeathDrop( c -> newSewantMushroomItem(0).relocate(c));
+		fungus.ai().setDeathDrop( c -> newSewantMushroomItem(c.z()).relocate(c));
 		if (wx == -1 || wy == -1)
 			world.addAtEmptyLocation(fungus,  wz);
 		else
-			world.addAtLocation(fungus, new Point(wx, wy, wz));
+			world.addAtLocation(fungus, world.point(wx, wy, wz));
 		return fungus;
 	}
 	
@@ -179,7 +266,7 @@ public class StuffFactory {
 		new PlantAI(plant, this, 3, 0.01) {
 			public boolean canEnter(Point p) { return super.canEnter(p) && world.tile(p) != Tile.WATER; }
 		};
-		plant.ai().setDeathDrop(c -> newWolfsbaneItem(0).relocate(c.location()));
+		plant.ai().setDeathDrop(c -> newWolfsbaneItem(c.z()).relocate(c.location()));
 		world.addAtEmptyLocation(plant,  depth);
 		return plant;
 	}
@@ -191,14 +278,14 @@ public class StuffFactory {
 		return item;
 	}
 	
-	/** Places a new wolfsbane plant at a random space at {@code depth}. */
+	/** Places a new hornwort plant at a random space in water at {@code depth}. */
 	public Creature newHornwort(int depth) {
 		Creature plant = new Creature(world, "hornwort patch", (char)233, AsciiPanel.green, 10, 0, 0);
 		new PlantAI(plant, this, 3, 0.01) {
 			public boolean canEnter(Point p) { return super.canEnter(p) && world.tile(p) == Tile.WATER; }
 		};
-		plant.ai().setDeathDrop(c -> newHornwortItem(0).relocate(c.location()));
-		world.addAtEmptyLocation(plant,  depth);
+		plant.ai().setDeathDrop(c -> newHornwortItem(c.z()).relocate(c.location()));
+		world.addAtEmptyLocation(plant,  depth, p -> world.tile(p) == Tile.WATER);
 		return plant;
 	}
 	
@@ -215,7 +302,7 @@ public class StuffFactory {
 		new PlantAI(plant, this, 3, 0.01) {
 			public boolean canEnter(Point p) {return super.canEnter(p) && world.tile(p) != Tile.WATER; }
 		};
-		plant.ai().setDeathDrop(c -> newWhiteMyrtleItem(0).relocate(c.location()));
+		plant.ai().setDeathDrop(c -> newWhiteMyrtleItem(c.z()).relocate(c.location()));
 		world.addAtEmptyLocation(plant, depth);
 		return plant;
 	}
@@ -233,7 +320,7 @@ public class StuffFactory {
 		new PlantAI(plant, this, 3, 0.01) {
 			public boolean canEnter(Point p) {return super.canEnter(p) && world.tile(p) != Tile.WATER; }
 		};
-		plant.ai().setDeathDrop(c -> newCrowsEyeItem(0).relocate(c.location()));
+		plant.ai().setDeathDrop(c -> newCrowsEyeItem(c.z()).relocate(c.location()));
 		world.addAtEmptyLocation(plant, depth);
 		return plant;
 	}
@@ -251,7 +338,7 @@ public class StuffFactory {
 		new PlantAI(plant, this, 3, 0.01) {
 			public boolean canEnter(Point p) {return super.canEnter(p) && world.tile(p) != Tile.WATER; }
 		};
-		plant.ai().setDeathDrop(c -> newBlowballItem(0).relocate(c.location()));
+		plant.ai().setDeathDrop(c -> newBlowballItem(c.z()).relocate(c.location()));
 		world.addAtEmptyLocation(plant, depth);
 		return plant;
 	}
@@ -269,7 +356,7 @@ public class StuffFactory {
 	public Creature newDrowner(int depth, Creature player) {
 		Creature creature = new Creature(world, "drowner", 'd', AsciiPanel.brightBlue, 50, 10, 10);
 		new DrownerAI(creature, player, 2.0d);
-		creature.ai().setDeathDrop(c -> { if (Math.random() < 0.4) newDrownerTongue(c.location()); } );
+		creature.ai().setDeathDrop(c -> { if (random.nextDouble() < 0.4) newDrownerTongue(c.location()); } );
 		world.addAtEmptyLocation(creature, depth);
 		return creature;
 	}
@@ -278,7 +365,7 @@ public class StuffFactory {
 	public Creature newDrownedDead(int depth, Creature player) {
 		Creature creature = new Creature(world, "drowned dead", 'D', AsciiPanel.blue, 100, 20, 12);
 		new DrownerAI(creature, player, 3.5d);
-		creature.ai().setDeathDrop(c -> { if (Math.random() < 0.8) newDrownerTongue(c.location()); } );
+		creature.ai().setDeathDrop(c -> { if (random.nextDouble() < 0.8) newDrownerTongue(c.location()); } );
 		world.addAtEmptyLocation(creature, depth);
 		return creature;
 	}
@@ -369,7 +456,7 @@ public class StuffFactory {
 		if (wx == -1 || wy ==-1)
 			world.addAtEmptyLocation(bat, wz);
 		else
-			world.addAtLocation(bat, new Point(wx, wy, wz));
+			world.addAtLocation(bat, world.point(wx, wy, wz));
 		return bat;
 	}
 	
@@ -465,7 +552,7 @@ public class StuffFactory {
 
 	/** Places a random weapon on an empty location at {@code depth}. */
 	public Item randomWeapon(int depth){
-		switch ((int)(Math.random() * 4)){
+		switch (random.nextInt(4)){
 		case 0: return newDagger(depth);
 		case 1: return newSword(depth);
 		case 2: return newBow(depth);
@@ -475,7 +562,7 @@ public class StuffFactory {
 	
 	/** Places a random armor on an empty location at {@code depth}. */
 	public Item randomArmor(int depth){
-		switch ((int)(Math.random() * 3)){
+		switch (random.nextInt(3)){
 		case 0: return newLightArmor(depth);
 		case 1: return newMediumArmor(depth);
 		default: return newHeavyArmor(depth);
@@ -555,7 +642,7 @@ public class StuffFactory {
 	
 	/** Places a randomly chosen potion on an empty location at {@code depth}. */
 	public Item randomPotion(int depth) {
-		switch ((int) (Math.random() * 4)) {
+		switch (random.nextInt(4)) {
 //		case 0: return newPotionOfHealth(depth);
 		case 1: return newPotionOfPoison(depth);
 		case 2: return newPotionOfMana(depth);
@@ -774,7 +861,7 @@ public class StuffFactory {
 			}
   
 			public void update(Creature creature) {
-				if (Math.random() < 0.25)
+				if (random.nextDouble() < 0.25)
 					creature.modifyHP(1, "inner strength");
 			}
   
@@ -807,8 +894,8 @@ public class StuffFactory {
 				creature.doAction("fade out");
 				int mx = 0, my = 0;
 				do {
-					mx = (int) (Math.random() * 11) - 5;
-					my = (int) (Math.random() * 11) - 5;
+					mx = random.nextInt(11) - 5;
+					my = random.nextInt(11) - 5;
 				} while (!creature.canEnter(new Point(creature.x() + mx, creature.y() + my, creature.z()))
 						&& creature.canSee( new Point(creature.x() +mx, creature.y() + my, creature.z())));
 				
@@ -819,10 +906,10 @@ public class StuffFactory {
 		
 		item.addWrittenSpell("summon bats", 11, Spell.Delivery.TARGET, new Effect(1) {
 			public void start(Creature creature) {
-				Creature tempBat = newBat(0);
+				Creature tempBat = newBat(creature.z());
 				for (int ox = -1; ox<2; ox++) {
 					for (int oy=-1; oy<2; oy++) {
-						Point location = new Point(
+						Point location = world.point(
 								creature.x() + ox,
 								creature.y() + oy,
 								creature.z() );
@@ -852,11 +939,11 @@ public class StuffFactory {
 				
 				for (int dx=-2; dx<3; dx++) {
 					for (int dy=-2; dy<3; dy++) {
-						Point location = new Point(creature.x()+dx, creature.y()+dy, creature.z());
+						Point location = world.point(creature.x()+dx, creature.y()+dy, creature.z());
 						if (dx==0 && dy==0 || !creature.isInBounds(location))
 							continue;
 						int dist = dx*dx + dy*dy;
-						if (dist <= 2.1 && Math.random() > 0.25 || dist > 2.1 && Math.random() >.75) {
+						if (dist <= 2.1 && random.nextDouble() > 0.25 || dist > 2.1 && random.nextDouble() >.75) {
 							Creature other = creature.creature(location);
 							if (other != null)
 								other.modifyHP(-other.hp(), "a cave in", caster);
@@ -18,6 +18,10 @@ public enum Tile {
 //	DEEP_WATER((char)58, AsciiPanel.blue, "Waist deep water."),
 	UNKNOWN(' ', AsciiPanel.white, "(unknown)");
 	
+	private static final Tile[] VALUES = values();
+	/** Returns the Tile with the passed {@linkplain #ordinal()}. Used to decode the {@code byte} tile grid in {@linkplain World}. */
+	public static Tile of(int ordinal) { return VALUES[ordinal]; }
+	
 	private char glyph;
 	/** Returns the glyph labeling this tile as a {@code char}. */
 	public char glyph() { return glyph; }
@@ -56,6 +60,7 @@ public enum Tile {
 	/**
 	 * Combines two {@linkplain Color}s. {@code percent} determines the bias with {@code 0.0} equal to {@code c1} and {@code 1.0} equal to {@code c2}.
 	 * The RGB values of the blend are clamped within the {@code int} range [0, 256).
+	 * {@code percent} is rounded to one of {@linkplain #BLEND_LEVELS} levels so the blend can be looked up in the {@linkplain ColorTable}.
 	 * @param c1 - first Color
 	 * @param c2 - second Color
 	 * @param percent - how much of {@code c1} is present. Range from (0,1)
@@ -66,14 +71,10 @@ public enum Tile {
 			return c2;
 		if (percent >= 1.0)
 			return c1;
-		int red = (int) ((c1.getRed() - c2.getRed()) * percent);
-		int green = (int)  ((c1.getGreen() - c2.getGreen()) * percent);
-		int blue = (int) ((c1.getBlue() - c2.getBlue()) * percent);
-		return new Color(
-				Math.min(255, Math.max(0, red 	+ 	c2.getRed())), 
-				Math.min(255, Math.max(0, green + 	c2.getRed())), 
-				Math.min(255, Math.max(0, blue 	+ 	c2.getBlue()))
-			);
+		return ColorTable.blend(c1, c2, (int) Math.round(percent * BLEND_LEVELS), BLEND_LEVELS);
 	}
 	
+	/** Number of steps between two colors in {@linkplain #blend(Color, Color, double)}. */
+	public static final int BLEND_LEVELS = 256;
+	
 }
\ No newline at end of file
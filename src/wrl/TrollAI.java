@@ -10,6 +10,8 @@ public class TrollAI extends CreatureAI {
 	
 	private static final int CHARGE_DISTANCE = 10;
 	protected Creature player;
+	/** Walks the line of a charge. */
+	private LineWalker line = new LineWalker();
 	
 	public TrollAI(Creature creature, Creature player) {
 		super(creature);
@@ -26,10 +28,10 @@ public class TrollAI extends CreatureAI {
 		} else if (playerDistance > 3 && canPickup() && creature.item(creature.location()).name().equals("rock") && creature.inventory().count("rock") == 0 ) {
 			creature.pickup();
 		} else if (creature.canSee(player.location())) {
-			if (playerDistance > 3 && Math.random() < 0.1)
+			if (playerDistance > 3 && random().nextDouble() < 0.1)
 				charge(player);
 			else
-				hunt(player.location());
+				hunt(player);
 		} else if (destination != null) {
 			hunt(destination);
 		} else {
@@ -47,14 +49,18 @@ public class TrollAI extends CreatureAI {
 		creature.doAction("charge");
 		Point dif = target.location().subtract(creature.location());
 		int scale = (int) Math.ceil( (CHARGE_DISTANCE) / dif.magnitudeXY() ) + 1;
-		Line chargeLine = new Line(creature.x(), creature.y(), creature.x() + scale*dif.x, creature.y() + scale*dif.y, creature.z());
+		Point[] chargeLine = new Point[CHARGE_DISTANCE + 1];
+		int length = 0;
+		line.reset(creature.x(), creature.y(), creature.x() + scale*dif.x, creature.y() + scale*dif.y);
+		while (length < chargeLine.length && line.next())
+			chargeLine[length++] = creature.world().point(line.x(), line.y(), creature.z());
 		
-		for(int i=1; i < CHARGE_DISTANCE + 1; i++) {
+		for(int i=1; i < length; i++) {
 			int index = i;
 			creature.addAction( new Action(12) {
 				protected void act(Creature creature) {
 					World world = creature.world();
-					Point p = chargeLine.getPoints().get(index);
+					Point p = chargeLine[index];
 					if (!world.tile(p).isGround()) {
 						creature.clearActions();
 						creature.stun(400);
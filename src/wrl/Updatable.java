@@ -25,4 +25,8 @@ public interface Updatable {
 	/** Returns {@code true} if updatable should remain in the EventOrganizer for another update. */
 	public boolean updatePending();
 	
+	/** Catches up in one step on {@code rounds} AP refreshes that were skipped while this updatable was frozen out of the EventOrganizer.
+	 * @see World#freezeLevel(int) */
+	public void fastForward(int rounds);
+	
 }
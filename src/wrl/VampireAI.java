@@ -20,7 +20,7 @@ public class VampireAI extends CreatureAI {
 	public VampireAI(Creature creature, Creature player) {
 		super(creature);
 		this.player = player;
-		invisibilityCharge = (int) ( Math.random() * 100 );
+		invisibilityCharge = random().nextInt(100);
 		creature.modifySpeed(25);
 	}
 	
@@ -31,14 +31,14 @@ public class VampireAI extends CreatureAI {
 		invisibilityCharge = Math.min(invisibilityCharge + 1, 100);
 		
 		if (retreatCount < 1 && player.z() == creature.z() && distanceTo(player.location()) < 2) {
-			if (attacking || Math.random() < 0.25) {
+			if (attacking || random().nextDouble() < 0.25) {
 				attacking = false;
-				hunt(player.location());
+				hunt(player);
 			} else 
 				pass(player);
 		} else if (creature.canSee(player.location())) {
 			if (attacking) {
-				hunt(player.location());
+				hunt(player);
 			} else if (invisibilityCharge == 100) {
 				destination = player.location();
 				turnInvisible();
@@ -47,7 +47,7 @@ public class VampireAI extends CreatureAI {
 			else if (strafeCount > 0)
 				strafe(player);
 			else {
-				hunt(player.location());
+				hunt(player);
 			}
 		} else if (destination != null) {
 			hunt(destination);
@@ -100,7 +100,7 @@ public class VampireAI extends CreatureAI {
 		}
 		if (retreatCount == 0) {
 			strafeCount = 3;
-			strafeLeft = Math.random() > 0.5;
+			strafeLeft = random().nextDouble() > 0.5;
 		}
 	}
 	
@@ -109,12 +109,12 @@ public class VampireAI extends CreatureAI {
 		attacking = false;
 		destination = target.location();
 		double angle = new Line(creature.location(), target.location()).radialAngle();
-		int dAngle = Math.random() < 0.5 ? 45 : -45;
+		int dAngle = random().nextDouble() < 0.5 ? 45 : -45;
 		Point next = creature.location().neighbor(angle + dAngle);
 		if (!canEnter(next)) 
 			next = creature.location().neighbor(angle - dAngle);
 		if (!canEnter(next))
-			hunt(target.location());
+			hunt(target);
 		else {
 			creature.walk(next);
 			retreatCount = 3;
@@ -0,0 +1,154 @@
+package wrl;
+
+import java.util.Arrays;
+
+/**
+ * For each cell of a {@linkplain World}, the smallest squared radius around the cell within which a {@linkplain Tile#WATER} can be reached
+ * across ground tiles. Water can be reached from a cell without going further than {@code r} from it exactly when the value is at most {@code r*r},
+ * so creatures that keep close to water check their range with one lookup instead of a search.
+ * <br>Values above the maximum squared range of the map are {@linkplain #FAR}. The values of a level are computed when the level is first looked up.
+ * When a tile changes only the cells within the maximum range of it can change, so {@linkplain #patch(int, int, int)} recomputes just those.
+ * @author Arun Sundaram
+ *
+ */
+public class WaterMap {
+
+	/** Value of cells with no water within the maximum range. */
+	public static final int FAR = Byte.MAX_VALUE;
+
+	private static final int[] DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+	private static final int[] DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+	private World world;
+	private int width;
+	private int height;
+
+	private int maxSquaredRange;
+	/** Returns the largest squared range the map tells apart from {@linkplain #FAR}. */
+	public int maxSquaredRange() { return maxSquaredRange; }
+
+	/** Largest offset from a cell that can be within range of it. */
+	private int radius;
+	/** Number of cells within range of a cell. A path within range never takes as many steps. */
+	private int rangeCells;
+
+	/** Values of each level indexed as {@code y*width + x}, {@code null} until looked up. */
+	private byte[][] levels;
+
+	/** Steps from each cell of the level being built to its closest water. Scratch space of {@linkplain #build(int)}, not kept per level. */
+	private BreadthFirstSearch waterSearch;
+	private int[] distances;
+
+	/** Search of one cell: the cells of the square around it, the number of the search that visited each, and the cells queued at each cost. */
+	private int side;
+	private int[] stamps;
+	private int search;
+	private int[][] buckets;
+	private int[] bucketSizes;
+
+	/**
+	 * @param world - the {@linkplain World} the map describes
+	 * @param maxSquaredRange - the largest squared range that is looked up, below {@linkplain #FAR}
+	 */
+	public WaterMap(World world, int maxSquaredRange) {
+		this.world = world;
+		this.width = world.width();
+		this.height = world.height();
+		this.maxSquaredRange = maxSquaredRange;
+		this.radius = (int) Math.sqrt(maxSquaredRange);
+		this.levels = new byte[world.depth()][];
+		this.side = 2*radius + 1;
+		this.stamps = new int[side * side];
+		this.buckets = new int[maxSquaredRange + 1][side * side];
+		this.bucketSizes = new int[maxSquaredRange + 1];
+		for (int dy=-radius; dy<=radius; dy++)
+			for (int dx=-radius; dx<=radius; dx++)
+				if (dx*dx + dy*dy <= maxSquaredRange)
+					rangeCells++;
+	}
+
+	/** Returns the smallest squared radius around ({@code x}, {@code y}, {@code z}) within which water can be reached, or {@linkplain #FAR}. */
+	public int squaredRange(int x, int y, int z) {
+		if (!world.isInBounds(x, y, z) || !world.isLoaded(z))
+			return FAR;
+		if (levels[z] == null)
+			build(z);
+		return levels[z][y*width + x];
+	}
+
+	/** Recomputes the cells within range of ({@code x}, {@code y}, {@code z}) after its tile changed. Does nothing if the level hasn't been looked up. */
+	public void patch(int x, int y, int z) {
+		if (!world.isInBounds(x, y, z) || levels[z] == null)
+			return;
+		for (int cy=Math.max(0, y - radius); cy<=Math.min(height - 1, y + radius); cy++)
+			for (int cx=Math.max(0, x - radius); cx<=Math.min(width - 1, x + radius); cx++)
+				if ((cx - x)*(cx - x) + (cy - y)*(cy - y) <= maxSquaredRange)
+					levels[z][cy*width + cx] = (byte) compute(cx, cy, z);
+	}
+
+	/** Forgets the values of level {@code z}. They are computed again when the level is next looked up. */
+	public void release(int z) {
+		levels[z] = null;
+	}
+
+	/**
+	 * Computes every cell of level {@code z}. A search from all of the level's water first counts the steps from each cell to it;
+	 * cells too many steps away to reach water within range are {@linkplain #FAR} without a search of their own.
+	 */
+	private void build(int z) {
+		if (waterSearch == null) {
+			waterSearch = new BreadthFirstSearch(world);
+			distances = new int[width * height];
+		}
+		waterSearch.distances(z, (x, y, wz) -> world.tile(x, y, wz) == Tile.WATER, distances);
+		byte[] level = new byte[width * height];
+		for (int y=0; y<height; y++) {
+			for (int x=0; x<width; x++) {
+				boolean far = world.isGround(x, y, z) && distances[y*width + x] >= rangeCells;
+				level[y*width + x] = (byte) (far ? FAR : compute(x, y, z));
+			}
+		}
+		levels[z] = level;
+	}
+
+	/**
+	 * Returns the value of one cell by searching outward from it in order of the squared distance of the furthest cell on the way,
+	 * keeping cells queued in buckets by that cost. The cell itself is tested first even if it isn't ground, as by
+	 * {@linkplain World#getShortestPathInRange(int, int, int, double, CellPredicate)}.
+	 */
+	private int compute(int x0, int y0, int z) {
+		if (++search == 0) {
+			Arrays.fill(stamps, 0);
+			search = 1;
+		}
+		Arrays.fill(bucketSizes, 0);
+		stamps[radius*side + radius] = search;
+		buckets[0][bucketSizes[0]++] = y0*width + x0;
+		for (int cost=0; cost<=maxSquaredRange; cost++) {
+			int[] bucket = buckets[cost];
+			while (bucketSizes[cost] > 0) {
+				int cell = bucket[--bucketSizes[cost]];
+				int x = cell % width, y = cell / width;
+				if (world.tile(x, y, z) == Tile.WATER)
+					return cost;
+				for (int i=0; i<8; i++) {
+					int nx = x + DX[i], ny = y + DY[i];
+					int dx = nx - x0, dy = ny - y0;
+					int squared = dx*dx + dy*dy;
+					if (squared > maxSquaredRange || nx < 0 || nx >= width || ny < 0 || ny >= height)
+						continue;
+					int window = (dy + radius)*side + dx + radius;
+					if (stamps[window] == search)
+						continue;
+					stamps[window] = search;
+					if (!world.isGround(nx, ny, z))
+						continue;
+					int next = Math.max(cost, squared);
+					buckets[next][bucketSizes[next]++] = ny*width + nx;
+				}
+			}
+		}
+		return FAR;
+	}
+
+}
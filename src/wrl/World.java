@@ -2,14 +2,21 @@ package wrl;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import wrl.screens.PlayScreen;
 
@@ -28,65 +35,383 @@ public class World {
 	private int depth;
 	public int depth() { return depth; }
 	
-	private Tile[][][] tiles;
+	/** Tiles of each level stored as {@linkplain Tile#ordinal()} values indexed as {@code y*width + x}. {@code null} for levels that aren't loaded. */
+	private byte[][] tiles;
 	/** Returns the {@linkplain Tile} of the passed {@linkplain Point} if {@linkplain #isInBounds(Point)} returns {@code true} otherwise returns {@code Tile.BOUNDS}. */
-	public Tile tile(Point p) { return isInBounds(p) ? tiles[p.x][p.y][p.z] : Tile.BOUNDS; }
+	public Tile tile(Point p) { return tile(p.x, p.y, p.z); }
+	/** Returns the {@linkplain Tile} at ({@code x}, {@code y}, {@code z}) or {@code Tile.BOUNDS} if out of bounds or on a level that isn't loaded. */
+	public Tile tile(int x, int y, int z) { return isInBounds(x, y, z) && tiles[z] != null ? Tile.of(tiles[z][y*width + x]) : Tile.BOUNDS; }
+	/** Returns {@code true} if the {@linkplain Tile} at ({@code x}, {@code y}, {@code z}) is loaded, in bounds and not an obstruction. */
+	public boolean isGround(int x, int y, int z) { return isInBounds(x, y, z) && tiles[z] != null && Tile.of(tiles[z][y*width + x]).isGround(); }
+	/** Sets the {@linkplain Tile} at an in-bounds location on a loaded level. */
+	private void setTile(int x, int y, int z, Tile tile) { tiles[z][y*width + x] = (byte) tile.ordinal(); }
+	
+	private LevelProvider levels;
+	private IntConsumer levelPopulator;
+	/** Levels that have been evicted by {@linkplain #evictLevel(int)}. */
+	private ParkedLevel[] parked;
+	/** Levels that have been frozen by {@linkplain #freezeLevel(int)}. */
+	private FrozenLevel[] frozen;
+	
+	private int[] tileVersions;
+	/** Returns a counter that changes whenever a {@linkplain Tile} on level {@code z} is changed by {@linkplain #dig(Point)} or {@linkplain #caveIn(Point)}. */
+	public int tileVersion(int z) { return tileVersions[z]; }
+	
+	private Map<Creature, ChaseMap> chaseMaps;
+	/** Returns the shared {@linkplain ChaseMap} leading to {@code target}. The map is dropped when the target is removed from the world or its level is evicted. */
+	public ChaseMap chaseMap(Creature target) {
+		ChaseMap map = chaseMaps.get(target);
+		if (map == null) {
+			map = new ChaseMap(this, target);
+			chaseMaps.put(target, map);
+		}
+		return map;
+	}
 	
-	private Item[][][] items;
+	private Item[][] items;
 	/** Returns the {@linkplain Item} of the passed {@linkplain Point} if {@linkplain #isInBounds(Point)} returns {@code true} otherwise returns {@code null}.
 	 * Will also return {@code null} if there is no Item at the location. */
-	public Item item(Point p) { return isInBounds(p) ? items[p.x][p.y][p.z] : null; }
+	public Item item(Point p) { return item(p.x, p.y, p.z); }
+	/** Returns the {@linkplain Item} at ({@code x}, {@code y}, {@code z}) or {@code null} if there is none or the location is out of bounds. */
+	public Item item(int x, int y, int z) { return isInBounds(x, y, z) && items[z] != null ? items[z][y*width + x] : null; }
 	
-	private Map<Point, List<Hazard>> hazards;
-	/** Adds a {@linkplain Hazard} to {@linkplain Point} {@code p} and the {@linkplain EventOrganizer}. Hazards can stack at the same location. 
-	 * @see #addHazard(Hazard, Point) */
+	private HazardGrid hazards;
+	/** Adds a {@linkplain Hazard} to {@linkplain Point} {@code p} and the {@linkplain EventOrganizer}. Hazards can stack at the same location. */
 	public void add(Hazard hazard, Point p) {
-		addHazard(hazard, p);
+		hazards.add(hazard, p.x, p.y, p.z);
 		if (hazard.updatePending())
 			scheduleUpdate(hazard);
 		hazard.start();
 	}
-	/** Adds a {@linkplain Hazard} to {@linkplain Point} {@code p}. Hazards can stack at the same location. */
-	private void addHazard(Hazard hazard, Point p) {
-		if (!hazards.containsKey(p))
-			hazards.put(p, new ArrayList<Hazard>());
-		hazards.get(p).add(hazard);
+	/** Adds {@linkplain Hazard}s that have already been given their locations, such as the footprint of a {@linkplain Splash}, in one pass over the {@linkplain HazardGrid}. */
+	public void addAll(List<Hazard> hazards) {
+		this.hazards.addAll(hazards);
+		for (Hazard hazard : hazards) {
+			if (hazard.updatePending())
+				scheduleUpdate(hazard);
+			hazard.start();
+		}
 	}
-	/** Removes the {@linkplain Hazard} from the World and {@linkplain EventOrganizer}.
-	 * @ see {@link #removeHazard(Hazard)} */
+	/** Removes the {@linkplain Hazard} from the World and {@linkplain EventOrganizer}. */
 	public void remove(Hazard hazard) {
-		removeHazard(hazard);
+		hazards.remove(hazard);
 		if (hazard.updatePending())
 			cancelUpdate(hazard);
 		hazard.end();
 	}
-	/** Removes the {@linkplain Hazard} from the World. */
-	private void removeHazard(Hazard hazard) {
-		Point p = hazard.location();
-		if (!hazards.containsKey(p))
-			return;
-		hazards.get(p).remove(hazard);
-		if (hazards.get(p).isEmpty())
-			hazards.remove(p);
+	/** Removes each of the {@linkplain Hazard}s from the World and {@linkplain EventOrganizer}. */
+	public void removeAll(List<Hazard> hazards) {
+		for (Hazard hazard : hazards)
+			remove(hazard);
+	}
+	/** Returns {@code true} if there is a {@linkplain Hazard} at ({@code x}, {@code y}, {@code z}). */
+	public boolean hasHazard(int x, int y, int z) { return hazards.contains(x, y, z); }
+	/** Updates the averaged background of the cell of {@code hazard} after its background changes. */
+	public void updateHazardBackground(Hazard hazard) {
+		hazards.refreshBackground(hazard);
 	}
 	
-	private Map<Point, Creature> creatures;
+	private CreatureIndex creatures;
 	/** Returns the {@linkplain Creature} of the passed {@linkplain Point}. Will return {@code null} if there is no Creature at the location.  */
-	public Creature creature(Point p) { return creatures.get(p); }
+	public Creature creature(Point p) { return creatures.get(p.x, p.y, p.z); }
+	/** Returns the {@linkplain Creature} at ({@code x}, {@code y}, {@code z}) or {@code null} if there is none. */
+	public Creature creature(int x, int y, int z) { return creatures.get(x, y, z); }
+	/** Returns an unmodifiable list of the {@linkplain Creature}s on level {@code z}. */
+	public List<Creature> creatures(int z) { return creatures.creatures(z); }
+	/** Returns an unmodifiable list of the {@linkplain Creature}s on level {@code z} whose {@linkplain CreatureAI#listens()}. */
+	public List<Creature> listeners(int z) { return creatures.listeners(z); }
+	/** Updates whether {@code creature} is on its level's listener list after its {@linkplain CreatureAI} changes. */
+	public void updateListener(Creature creature) { creatures.updateListener(creature); }
+	
+	/** Ground cells of each level without a creature, indexed when a creature is first placed at random on the level. */
+	private FreeCells creatureCells;
+	/** Ground cells of each level without an item, indexed when an item is first placed at random on the level. */
+	private FreeCells itemCells;
+	
+	/** Reused by searches for the closest cell that satisfies a condition. A predicate that searches again is given the next idle one. */
+	private List<BreadthFirstSearch> searches;
+	/** Squared range to water of every cell. @see #waterRange(int, int, int) */
+	private WaterMap waterMap;
+	/** Largest squared range to water told apart by {@linkplain #waterRange(int, int, int)}. Covers ranges up to 4 tiles. */
+	public static final int MAX_WATER_RANGE_SQUARED = 16;
+	
+	/** Canonical {@linkplain Point} of each cell of each level indexed as {@code y*width + x}, created when first requested. */
+	private Point[][] points;
 	
 	private EventOrganizer eventOrganizer;
+	/** Returns the number of times every scheduled entity has had its AP refreshed. */
+	public int rounds() { return eventOrganizer.rounds(); }
 	
+	private Random random;
+	/** Returns the random source shared by everything in this world. Seeding it makes a game reproducible. */
+	public Random random() { return random; }
+	
+	/** Creates a world with an unseeded random source. */
 	public World (Tile[][][] tiles) {
-		this.tiles = tiles;
-		this.width = tiles.length;
-		this.height = tiles[0].length;
-		this.depth = tiles[0][0].length;
-		this.items = new Item[width][height][depth];
-		this.creatures = new HashMap<Point, Creature>();
-		this.hazards = new HashMap<Point, List<Hazard>>();
+		this(tiles, new Random());
+	}
+	
+	/**
+	 * @param tiles - the tiles of the world indexed as [x][y][z]
+	 * @param random - the random source used by the world and its entities
+	 */
+	public World (Tile[][][] tiles, Random random) {
+		this(tiles.length, tiles[0].length, toLevels(tiles), random);
+	}
+	
+	/**
+	 * Creates a world with every level loaded.
+	 * @param width - width of the world
+	 * @param height - height of the world
+	 * @param tiles - {@linkplain Tile#ordinal()} values of each level indexed as {@code y*width + x}. The arrays are used directly, not copied.
+	 * @param random - the random source used by the world and its entities
+	 */
+	public World (int width, int height, byte[][] tiles, Random random) {
+		this(width, height, tiles.length, null, random);
+		for (int z=0; z<depth; z++) {
+			this.tiles[z] = tiles[z];
+			this.items[z] = new Item[width * height];
+		}
+	}
+	
+	/**
+	 * Creates a world with no levels loaded. Each level is generated by {@code levels} when it is first loaded by {@linkplain #loadLevel(int)}.
+	 * @param width - width of the world
+	 * @param height - height of the world
+	 * @param depth - number of levels
+	 * @param levels - generates the tiles of each level
+	 * @param random - the random source used by the world and its entities
+	 */
+	public World (int width, int height, int depth, LevelProvider levels, Random random) {
+		this.random = random;
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.levels = levels;
+		this.tiles = new byte[depth][];
+		this.items = new Item[depth][];
+		this.parked = new ParkedLevel[depth];
+		this.frozen = new FrozenLevel[depth];
+		this.tileVersions = new int[depth];
+		this.chaseMaps = new HashMap<Creature, ChaseMap>();
+		this.creatures = new CreatureIndex(width, height, depth);
+		this.hazards = new HazardGrid(width, height, depth);
+		this.creatureCells = new FreeCells(width * height, depth);
+		this.itemCells = new FreeCells(width * height, depth);
+		this.points = new Point[depth][];
+		this.searches = new ArrayList<BreadthFirstSearch>();
+		this.waterMap = new WaterMap(this, MAX_WATER_RANGE_SQUARED);
 		this.eventOrganizer = new EventOrganizer();
 	}
 	
+	/** Packs a [x][y][z] tile array into ordinals of each level indexed as {@code y*width + x}. */
+	private static byte[][] toLevels(Tile[][][] tiles) {
+		int width = tiles.length, height = tiles[0].length, depth = tiles[0][0].length;
+		byte[][] levels = new byte[depth][width * height];
+		for (int x=0; x<width; x++)
+			for (int y=0; y<height; y++)
+				for (int z=0; z<depth; z++)
+					levels[z][y*width + x] = (byte) tiles[x][y][z].ordinal();
+		return levels;
+	}
+	
+	/** Sets the callback that places the items and creatures of a level after it is generated by {@linkplain #loadLevel(int)}. */
+	public void setLevelPopulator(IntConsumer levelPopulator) {
+		this.levelPopulator = levelPopulator;
+	}
+	
+	/** Returns {@code true} if the tiles and entities of level {@code z} are in memory. */
+	public boolean isLoaded(int z) {
+		return z >= 0 && z < depth && tiles[z] != null;
+	}
+	
+	/**
+	 * Loads level {@code z} if it isn't already. An evicted level is restored as it was left.
+	 * A level that was never loaded is generated by the {@linkplain LevelProvider} and then populated.
+	 */
+	public void loadLevel(int z) {
+		if (z < 0 || z >= depth || tiles[z] != null)
+			return;
+		if (parked[z] != null) {
+			restoreLevel(z);
+			return;
+		}
+		if (levels == null)
+			return;
+		tiles[z] = levels.level(z);
+		items[z] = new Item[width * height];
+		if (levelPopulator != null)
+			levelPopulator.accept(z);
+	}
+	
+	/**
+	 * Freezes level {@code z}: every entity on it that is queued in the {@linkplain EventOrganizer} is moved to a cold list and stops updating.
+	 * When the level is thawed each of them catches up at once through {@linkplain Updatable#fastForward(int)}. Catching up covers timers, regeneration,
+	 * {@linkplain Effect}s and plant growth; creatures don't move or act for the rounds they missed.
+	 */
+	public void freezeLevel(int z) {
+		if (!isLoaded(z) || frozen[z] != null)
+			return;
+		FrozenLevel level = new FrozenLevel(eventOrganizer.rounds());
+		for (Item item : items[z]) {
+			if (item != null)
+				level.freeze(item);
+		}
+		for (Creature creature : creatures(z))
+			level.freeze(creature);
+		for (Hazard hazard : hazards.hazards(z))
+			level.freeze(hazard);
+		frozen[z] = level;
+	}
+	
+	/** Returns the entities of a frozen level {@code z} to the {@linkplain EventOrganizer} after fast forwarding them past the rounds they missed. */
+	public void thawLevel(int z) {
+		if (!isLoaded(z) || frozen[z] == null)
+			return;
+		FrozenLevel level = frozen[z];
+		frozen[z] = null;
+		int rounds = eventOrganizer.rounds() - level.round;
+		for (Updatable updatable : level.scheduled) {
+			if (rounds > 0)
+				updatable.fastForward(rounds);
+			if (updatable.updatePending())
+				eventOrganizer.add(updatable);
+		}
+	}
+	
+	/** Catches up every scheduled entity on level {@code z} on {@code rounds} AP refreshes at once, as if the level had been frozen for that long. */
+	public void fastForwardLevel(int z, int rounds) {
+		if (rounds <= 0 || !isLoaded(z) || frozen[z] != null)
+			return;
+		freezeLevel(z);
+		frozen[z].round -= rounds;
+		thawLevel(z);
+	}
+	
+	/** Freezes every loaded level more than {@code distance} levels away from level {@code z} and thaws the others. */
+	public void freezeLevelsFarFrom(int z, int distance) {
+		for (int level=0; level<depth; level++) {
+			if (Math.abs(level - z) > distance)
+				freezeLevel(level);
+			else
+				thawLevel(level);
+		}
+	}
+	
+	/** The entities of a frozen level that were queued in the {@linkplain EventOrganizer}, and the round they were frozen at. */
+	private class FrozenLevel {
+		private int round;
+		private List<Updatable> scheduled = new ArrayList<Updatable>();
+		
+		private FrozenLevel(int round) {
+			this.round = round;
+		}
+		
+		private void freeze(Updatable updatable) {
+			if (eventOrganizer.contains(updatable)) {
+				scheduled.add(updatable);
+				eventOrganizer.remove(updatable);
+			}
+		}
+	}
+	
+	/**
+	 * Evicts level {@code z} from memory. It is frozen, its tiles are compressed, and its items, creatures and hazards are parked
+	 * until the level is loaded again. An evicted level stays frozen until it is thawed after being loaded.
+	 */
+	public void evictLevel(int z) {
+		if (!isLoaded(z))
+			return;
+		freezeLevel(z);
+		ParkedLevel level = new ParkedLevel();
+		level.tiles = compress(tiles[z]);
+		for (Item item : items[z]) {
+			if (item != null)
+				level.items.add(item);
+		}
+		for (Creature creature : new ArrayList<Creature>(creatures(z))) {
+			level.creatures.add(creature);
+			creatures.remove(creature);
+			chaseMaps.remove(creature);
+		}
+		for (Hazard hazard : new ArrayList<Hazard>(hazards.hazards(z))) {
+			level.hazards.add(hazard);
+			hazards.remove(hazard);
+		}
+		tiles[z] = null;
+		items[z] = null;
+		creatures.release(z);
+		hazards.release(z);
+		creatureCells.release(z);
+		itemCells.release(z);
+		waterMap.release(z);
+		parked[z] = level;
+	}
+	
+	/** Evicts every loaded level more than {@code distance} levels away from level {@code z}. */
+	public void evictLevelsFarFrom(int z, int distance) {
+		for (int level=0; level<depth; level++) {
+			if (Math.abs(level - z) > distance)
+				evictLevel(level);
+		}
+	}
+	
+	/** Returns level {@code z} to memory as it was when it was evicted. */
+	private void restoreLevel(int z) {
+		ParkedLevel level = parked[z];
+		parked[z] = null;
+		tiles[z] = decompress(level.tiles, width * height);
+		items[z] = new Item[width * height];
+		for (Item item : level.items)
+			items[z][item.y()*width + item.x()] = item;
+		for (Creature creature : level.creatures)
+			creatures.move(creature, creature.x(), creature.y(), z);
+		for (Hazard hazard : level.hazards)
+			hazards.add(hazard, hazard.x(), hazard.y(), z);
+	}
+	
+	/** The entities of an evicted level. They are kept as they are rather than serialized; only the tiles are compressed. */
+	private static class ParkedLevel {
+		private byte[] tiles;
+		private List<Item> items = new ArrayList<Item>();
+		private List<Creature> creatures = new ArrayList<Creature>();
+		private List<Hazard> hazards = new ArrayList<Hazard>();
+	}
+	
+	/** Returns {@code data} compressed with {@linkplain Deflater}. */
+	private static byte[] compress(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(data);
+		deflater.finish();
+		byte[] buffer = new byte[data.length / 4 + 64];
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			length += deflater.deflate(buffer, length, buffer.length - length);
+		}
+		deflater.end();
+		return Arrays.copyOf(buffer, length);
+	}
+	
+	/** Returns the {@code length} bytes that were compressed into {@code data} by {@linkplain #compress(byte[])}. */
+	private static byte[] decompress(byte[] data, int length) {
+		Inflater inflater = new Inflater();
+		inflater.setInput(data);
+		byte[] result = new byte[length];
+		try {
+			int read = 0;
+			while (read < length && !inflater.finished())
+				read += inflater.inflate(result, read, length - read);
+		} catch (DataFormatException e) {
+			// Only data written by compress() is inflated
+			throw new IllegalStateException(e);
+		} finally {
+			inflater.end();
+		}
+		return result;
+	}
+	
 	/** Updates the {@code player}, then updates everything else until it's the {@code player}'s next turn. */
 	public void update(Creature player) {
 		player.update();
@@ -128,6 +453,11 @@ public class World {
 		eventOrganizer.add(updatable);
 	}
 	
+	/** Reorders an {@linkplain Updatable} whose AP has changed, scheduling it if it isn't already. */
+	public void rescheduleUpdate(Updatable updatable) {
+		eventOrganizer.reschedule(updatable);
+	}
+	
 	/** Removes the {@linkplain Updatable} from the event organizer. */
 	public void cancelUpdate(Updatable updatable) {
 		eventOrganizer.remove(updatable);
@@ -135,24 +465,42 @@ public class World {
 	
 	/** If a Tile is dig-able, replace with its ground Tile. */
 	public void dig(Point p) {
-		if (tile(p).isDiggable())
-			tiles[p.x][p.y][p.z] = tiles[p.x][p.y][(p.z+5)%depth].isGround() ? Tile.WATER : Tile.FLOOR;
+		if (tile(p).isDiggable()) {
+			int below = (p.z+5)%depth;
+			boolean wet = isLoaded(below) ? isGround(p.x, p.y, below) : levels != null && levels.isGround(p.x, p.y, below);
+			setTile(p.x, p.y, p.z, wet ? Tile.WATER : Tile.FLOOR);
+			tileVersions[p.z]++;
+			updateFreeCell(p.x, p.y, p.z);
+			waterMap.patch(p.x, p.y, p.z);
+		}
 	}
 	
 	/** Replaces the Tile with Tile.WALL if it is in bounds and not stairs. */
 	public void caveIn(Point p) {
-		if (tiles[p.x][p.y][p.z] == Tile.BOUNDS || tiles[p.x][p.y][p.z] == Tile.STAIRS_DOWN || tiles[p.x][p.y][p.z] == Tile.STAIRS_UP)
+		Tile tile = tile(p);
+		if (tile == Tile.BOUNDS || tile == Tile.STAIRS_DOWN || tile == Tile.STAIRS_UP || tile == Tile.WALL)
 			return;
-		tiles[p.x][p.y][p.z] = Tile.WALL;
+		setTile(p.x, p.y, p.z, Tile.WALL);
+		tileVersions[p.z]++;
+		updateFreeCell(p.x, p.y, p.z);
+		waterMap.patch(p.x, p.y, p.z);
 	}
 	
-	/** Randomly selects an empty location at the {@code depth} level and relocates the {@code creature} there. */
+	/** @see #addAtEmptyLocation(Creature, int, Predicate) */
 	public Point addAtEmptyLocation(Creature creature, int depth) {
-		Point p;
-		do {
-			p = new Point(	(int)(Math.random() * width),	(int)(Math.random() * height),	depth);
-		} while (!tile(p).isGround() || creature(p) != null || !creature.canEnter(p));
-		addAtLocation(creature, p);
+		return addAtEmptyLocation(creature, depth, p -> true);
+	}
+	
+	/**
+	 * Randomly selects an empty location at the {@code depth} level that the {@code creature} can enter and {@code validPoint} accepts,
+	 * and relocates the {@code creature} there. Returns the location or {@code null} if there is none, in which case the creature isn't added.
+	 * @see FreeCells#sample(int, Random, java.util.function.IntPredicate)
+	 */
+	public Point addAtEmptyLocation(Creature creature, int depth, Predicate<Point> validPoint) {
+		loadLevel(depth);
+		Point p = randomFreeCell(creatureCells, depth, q -> creature.canEnter(q) && validPoint.test(q));
+		if (p != null)
+			addAtLocation(creature, p);
 		return p;
 	}
 	
@@ -163,15 +511,46 @@ public class World {
 		eventOrganizer.add(creature);
 	}
 	
-	/** Randomly selects an empty location at the {@code depth} level and relocates the {@code item} there. */
+	/** Randomly selects an empty location at the {@code depth} level and relocates the {@code item} there. Returns {@code null} if there is none. */
 	public Point addAtEmptyLocation(Item item, int depth) {
-		Point p;
-		do {
-			p = new Point( 	(int)(Math.random() * width),  	(int)(Math.random() * height),	 depth);
-		} while (!tile(p).isGround() || item(p) != null);
-		item.relocate(this, p);
+		loadLevel(depth);
+		Point p = randomFreeCell(itemCells, depth, q -> true);
+		if (p != null)
+			item.relocate(this, p);
 		return p;
 	}
+	
+	/** Returns a random cell of {@code cells} on level {@code z} that {@code validPoint} accepts, indexing the level first if needed. */
+	private Point randomFreeCell(FreeCells cells, int z, Predicate<Point> validPoint) {
+		if (!isLoaded(z))
+			return null;
+		if (!cells.isIndexed(z))
+			indexFreeCells(z);
+		int cell = cells.sample(z, random, c -> validPoint.test(point(c % width, c / width, z)));
+		return cell < 0 ? null : point(cell % width, cell / width, z);
+	}
+	
+	/** Indexes the cells of loaded level {@code z} that are free for creatures and for items. */
+	private void indexFreeCells(int z) {
+		creatureCells.index(z, cell -> isFreeOfCreatures(cell % width, cell / width, z));
+		itemCells.index(z, cell -> isFreeOfItems(cell % width, cell / width, z));
+	}
+	
+	/** Updates the free cell indexes at ({@code x}, {@code y}, {@code z}) after its tile, creature or item changed. */
+	private void updateFreeCell(int x, int y, int z) {
+		if (!isInBounds(x, y, z) || !isLoaded(z))
+			return;
+		creatureCells.set(z, y*width + x, isFreeOfCreatures(x, y, z));
+		itemCells.set(z, y*width + x, isFreeOfItems(x, y, z));
+	}
+	
+	private boolean isFreeOfCreatures(int x, int y, int z) {
+		return isGround(x, y, z) && creatures.get(x, y, z) == null;
+	}
+	
+	private boolean isFreeOfItems(int x, int y, int z) {
+		return isGround(x, y, z) && item(x, y, z) == null;
+	}
 
 	/** Will place the {@linkplain Item} at the {@linkplain Point} closest to the {@code location}. If no location is found, item is removed from the world. */
 	public Point addAtEmptySpace(Item item, Point location) {
@@ -179,7 +558,8 @@ public class World {
 		if (empty == null)
 			creature(location).notify("The %s vanishes forever in the mess.", creature(location).nameOf(item));
 		else {
-			items[empty.x][empty.y][empty.z] = item;
+			items[empty.z][empty.y*width + empty.x] = item;
+			updateFreeCell(empty.x, empty.y, empty.z);
 			Creature c = creature(empty);
 			if (c != null)
 				c.notify("A %s lands between your feet.", c.nameOf(item));
@@ -189,25 +569,30 @@ public class World {
 	
 	/** Updates the creature map if when {@linkplain Creature} updates its position. */
 	public void updateCreatureLocation(Creature creature, Point newLocation) {
-		creatures.remove(creature.location());
-		creatures.put(newLocation, creature);
+		creatures.move(creature, newLocation.x, newLocation.y, newLocation.z);
+		updateFreeCell(creature.x(), creature.y(), creature.z());
+		updateFreeCell(newLocation.x, newLocation.y, newLocation.z);
 	}
 	
 	/** Updates the hazards map if when {@linkplain Hazard} updates its position. */
 	public void updateHazardLocation(Hazard hazard, Point newLocation) {
-		removeHazard(hazard);
-		addHazard(hazard, newLocation);
+		hazards.add(hazard, newLocation.x, newLocation.y, newLocation.z);
 	}
 	
 	/** Removes the {@linkplain Item} from the world. */
 	public void remove(Item item) {
 		Point p = item.location();
-		items[p.x][p.y][p.z] = null;
+		if (items[p.z] != null) {
+			items[p.z][p.y*width + p.x] = null;
+			updateFreeCell(p.x, p.y, p.z);
+		}
 	}
 	
 	/** Removes the {@linkplain Creature} from the world. */
 	public void remove(Creature other) {
-		creatures.remove(other.location());
+		creatures.remove(other);
+		chaseMaps.remove(other);
+		updateFreeCell(other.x(), other.y(), other.z());
 		cancelUpdate(other);
 	}
 	
@@ -217,27 +602,40 @@ public class World {
 	 * @param location - starting point to search radially from
 	 * @param range - maximum radial distance to search
 	 * @param validPoint - returns true if a Point meets the passed condition
+	 * @see #getShortestPathInRange(int, int, int, double, CellPredicate)
 	 */
 	public Point getShortestPathInRange(Point location, double range, Predicate<Point> validPoint) {
-		Map<Point, Integer> distance = new HashMap<Point, Integer>();
-		Queue<Point> points = new PriorityQueue<Point>( (p1, p2) -> distance.get(p1) - distance.get(p2) );
-		distance.put(location, 0);
-		points.add(location);
-		
-		while (!points.isEmpty()) {
-			Point p = points.remove();
-			if (validPoint.test(p))
-				return p;
-			for (Point neighbor : p.neighbors8()) {
-				if (!tile(neighbor).isGround() || !isInBounds(neighbor) || location.subtract(neighbor).magnitudeXY() > range)
-					continue;
-				if (!distance.containsKey(neighbor) || distance.get(neighbor) > distance.get(p) + 1) {
-					distance.put(neighbor, distance.get(p) + 1);
-					points.add(neighbor);
-				}
-			}
+		return getShortestPathInRange(location.x, location.y, location.z, range, (x, y, z) -> validPoint.test(point(x, y, z)));
+	}
+	
+	/**
+	 * Searches for the closest cell that satisfies {@code validCell} and is reached by a contiguous Path from ({@code x}, {@code y}, {@code z}) within {@code range}.
+	 * Cells the same number of steps away are chosen between at random. Returns null if no valid cell is found within the range.
+	 * @see BreadthFirstSearch#nearest(int, int, int, double, CellPredicate, int)
+	 */
+	public Point getShortestPathInRange(int x, int y, int z, double range, CellPredicate validCell) {
+		int cell = idleSearch().nearest(x, y, z, range, validCell, random.nextInt(8));
+		return cell < 0 ? null : point(cell % width, cell / width, z);
+	}
+	
+	/** Returns a {@linkplain BreadthFirstSearch} that isn't running, adding one if every search is nested in another. */
+	private BreadthFirstSearch idleSearch() {
+		for (BreadthFirstSearch search : searches) {
+			if (!search.busy())
+				return search;
 		}
-		return null;
+		BreadthFirstSearch search = new BreadthFirstSearch(this);
+		searches.add(search);
+		return search;
+	}
+	
+	/**
+	 * Returns the smallest squared radius around ({@code x}, {@code y}, {@code z}) within which a {@linkplain Tile#WATER} can be reached across ground,
+	 * or {@linkplain WaterMap#FAR} if it is more than {@link #MAX_WATER_RANGE_SQUARED}. Water is within range {@code r} of the cell exactly when
+	 * {@code getShortestPathInRange} would find it, which is when the value is at most {@code r*r}.
+	 */
+	public int waterRange(int x, int y, int z) {
+		return waterMap.squaredRange(x, y, z);
 	}
 	
 	
@@ -282,7 +680,7 @@ public class World {
 			seen.add(curr);
 			if (validPoint.test(curr))
 				return curr;
-			for (Point p : curr.neighbors8()) {
+			for (Point p : neighbors8(curr, random)) {
 				if (seen.contains(p) || !isInBounds(p))
 					continue;
 				double dist = p.subtract(location).magnitudeXY();
@@ -314,78 +712,122 @@ public class World {
 		return null;
 	}
 	
+	/**
+	 * Returns the shared {@linkplain Point} at ({@code x}, {@code y}, {@code z}), creating it the first time it is requested.
+	 * Every cell of the world has one instance, so locations taken from here compare by identity before {@linkplain Point#equals(Object)}
+	 * and don't need to be copied. Out of bounds coordinates get a new Point.
+	 */
+	public Point point(int x, int y, int z) {
+		if (!isInBounds(x, y, z))
+			return new Point(x, y, z);
+		Point[] level = points[z];
+		if (level == null)
+			level = points[z] = new Point[width * height];
+		int i = y*width + x;
+		Point p = level[i];
+		if (p == null)
+			p = level[i] = new Point(x, y, z);
+		return p;
+	}
+	
+	/** Returns the shared {@linkplain Point} equal to {@code p}. @see #point(int, int, int) */
+	public Point point(Point p) {
+		return point(p.x, p.y, p.z);
+	}
+	
+	/** Returns the shared Points of the eight neighbors of {@code p} in the order of {@linkplain Point#neighbors8()} shuffled by {@code random}. */
+	public List<Point> neighbors8(Point p, Random random) {
+		List<Point> neighbors = new ArrayList<Point>(8);
+		for (int i=-1; i<2; i++) {
+			for (int j=-1; j<2; j++) {
+				if (i==0 && j==0)
+					continue;
+				neighbors.add(point(p.x+i, p.y+j, p.z));
+			}
+		}
+		Collections.shuffle(neighbors, random);
+		return neighbors;
+	}
+	
 	/** Returns {@code true} if the {@linkplain Point} exists in the world. */
 	public boolean isInBounds(Point p) {
-		return p.x >= 0 && p.x < width && p.y >= 0 && p.y < height && p.z >=0 && p.z < depth;
+		return isInBounds(p.x, p.y, p.z);
 	}
 	
+	/** Returns {@code true} if ({@code x}, {@code y}, {@code z}) exists in the world. */
+	public boolean isInBounds(int x, int y, int z) {
+		return x >= 0 && x < width && y >= 0 && y < height && z >=0 && z < depth;
+	}
+	
+	/** Background of cells that have none. Shared so that rendering doesn't create one per cell. */
+	public static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+	
 	/** Returns the glyph at {@linkplain Point} {@code p} for displaying as a {@code char}. */
 	public char glyph(Point p, Creature player) {
-		Tile tile = tile(p);
+		Creature creature = creature(p);
+		return glyph(p.x, p.y, p.z, tile(p.x, p.y, p.z), creature, item(p.x, p.y, p.z),
+				creature != null && player.canSee(p), creature != null && player.canDetect(p));
+	}
+	
+	/**
+	 * Returns the glyph of the cell ({@code x}, {@code y}, {@code z}) from its contents.
+	 * @param sees - if the viewer can see the cell
+	 * @param detects - if the viewer can detect the creature in the cell
+	 */
+	char glyph(int x, int y, int z, Tile tile, Creature creature, Item item, boolean sees, boolean detects) {
 		if (tile == Tile.WALL)
 			return tile.glyph();
 		
-		Creature creature = creature(p);
 		if (creature != null) {
-			if (creature.visible() && player.canSee(p))
+			if (creature.visible() && sees)
 				return creature.glyph();
-			else if (player.canDetect(p))
+			else if (detects)
 				return '"';
 		}
-						
-		Item item = item(p);
+		
 		if (item != null)
 			return item.glyph();
 		
-		if (hazards.containsKey(p)) {
-			List<Hazard> list = hazards.get(p);
-			for (int i=list.size()-1; i>=0; i--)
-				if (list.get(i).glyph() != (char)0)
-					return list.get(i).glyph();
-		}
-		return tile.glyph();
+		char hazard = hazards.glyph(x, y, z);
+		return hazard != (char)0 ? hazard : tile.glyph();
 	}
 	
 	/** Returns the {@linkplain Color} at {@linkplain Point} {@code p} for displaying the glyph. */
 	public Color color (Point p, Creature player) {
-		Tile tile = tile(p);
+		Creature creature = creature(p);
+		return color(p.x, p.y, p.z, tile(p), creature, item(p), creature != null && player.canDetect(p));
+	}
+	
+	/**
+	 * Returns the glyph {@linkplain Color} of the cell ({@code x}, {@code y}, {@code z}) from its contents.
+	 * @param detects - if the viewer can detect the creature in the cell
+	 */
+	Color color(int x, int y, int z, Tile tile, Creature creature, Item item, boolean detects) {
 		if (tile == Tile.WALL)
 			return tile.color();
 		
-		Creature creature = creature(p);
-		if (creature != null && ( creature.visible() || player.canDetect(p) ) )
+		if (creature != null && ( creature.visible() || detects ) )
 			return creature.color();
 		
-		Item item = item(p);
 		if (item != null)
-			return tile(p)!=Tile.WATER ? item.color() : Tile.blend(tile(p).color(), item.color(), 0.5);
+			return tile != Tile.WATER ? item.color() : Tile.blend(tile.color(), item.color(), 0.5);
 
-		if (hazards.containsKey(p)) {
-			List<Hazard> list = hazards.get(p);
-			for (int i=list.size()-1; i>=0; i--)
-				if (list.get(i).color() != null)
-					return list.get(i).color();
-		}
-		return tile.color();
+		Color hazard = hazards.color(x, y, z);
+		return hazard != null ? hazard : tile.color();
 	}
 	
 	/** Returns the {@linkplain Color} at {@linkplain Point} {@code p} for displaying the background. */
 	public Color backgroundColor(Point p) {
-		Color bg = (creature(p) == null) ? null : creature(p).background();
+		return backgroundColor(p.x, p.y, p.z, creature(p));
+	}
+	
+	/** Returns the background {@linkplain Color} of the cell ({@code x}, {@code y}, {@code z}) from its creature, which may be {@code null}, and the averaged background of its hazards. */
+	Color backgroundColor(int x, int y, int z, Creature creature) {
+		Color bg = (creature == null) ? null : creature.background();
 		if (bg != null)
 			return bg;
-		if (!hazards.containsKey(p))
-			return new Color(0, 0, 0, 0); // return Color.BLACK;
-		int r = 0, b = 0, g = 0, count = 0;
-		for (Hazard h : hazards.get(p)) {
-			if (h.background() == null)
-				continue;
-			count++;
-			r += h.background().getRed();
-			g += h.background().getGreen();
-			b += h.background().getBlue();
-		}
-		return count == 0 ? new Color(0, 0, 0, 0) : new Color(r/count, g/count, b/count);
+		bg = hazards.background(x, y, z);
+		return bg != null ? bg : TRANSPARENT; // return Color.BLACK;
 	}
 	
 
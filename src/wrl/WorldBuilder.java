@@ -1,215 +1,409 @@
 package wrl;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Generates the {@linkplain Tile}s of the {@linkplain World}.
+ * <br>Each level starts as its own cave of floor regions. Stairs are then placed where a region overlaps a region of the level below,
+ * and floor becomes water where the level five below is ground. Every stage draws from random streams seeded for its level,
+ * so a level can be finished from just the caves around it: {@linkplain #makeCaves()} generates every level in parallel
+ * on a {@linkplain ForkJoinPool}, while {@linkplain #buildLazy()} returns a World that generates each level when it is first loaded.
+ * A given seed produces the same caves either way, regardless of the number of threads.
+ * @author Arun Sundaram
  *
  */
-public class WorldBuilder {
-	
+public class WorldBuilder implements LevelProvider {
+
+	private static final byte FLOOR = (byte) Tile.FLOOR.ordinal();
+	private static final byte WALL = (byte) Tile.WALL.ordinal();
+	private static final byte WATER = (byte) Tile.WATER.ordinal();
+	private static final byte STAIRS_DOWN = (byte) Tile.STAIRS_DOWN.ordinal();
+	private static final byte STAIRS_UP = (byte) Tile.STAIRS_UP.ordinal();
+	/** Number of caves kept by a lazy builder for finishing nearby levels. */
+	private static final int CACHED_CAVES = 12;
+
 	private int width;
 	private int height;
 	private int depth;
-	private Tile[][][] tiles;
-	private int[][][] regions;
-	private int nextRegion = 1;
-	
+	/** Finished levels generated by {@linkplain #makeCaves()}, indexed as {@code y*width + x}. */
+	private byte[][] tiles;
+	/** Cells of the stairs between each level and the one below it. {@code null} until placed. */
+	private int[][] stairs;
+	private Map<Integer, Cave> caves;
+	private Random random;
+	/** Seeds of the random streams used by each level's cave and by the stairs below it. */
+	private long[] levelSeeds;
+	private long[] stairSeeds;
+	private long exitSeed;
+	private ForkJoinPool pool;
+	private CaveAutomaton automaton;
+	private int smoothIterations;
+
+	/** Creates a builder with an unseeded random source. */
 	public WorldBuilder(int width, int height, int depth) {
+		this(width, height, depth, new Random().nextLong());
+	}
+
+	/** Creates a builder whose caves, and the {@linkplain World} it builds, are determined by {@code seed}. */
+	public WorldBuilder(int width, int height, int depth, long seed) {
 		this.width = width;
 		this.height = height;
 		this.depth = depth;
-		this.tiles = new Tile[width][height][depth];
+		this.stairs = new int[depth][];
+		this.caves = new LinkedHashMap<Integer, Cave>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Integer, Cave> eldest) {
+				return size() > CACHED_CAVES;
+			}
+		};
+		this.random = new Random(seed);
+		this.levelSeeds = new long[depth];
+		this.stairSeeds = new long[depth];
+		for (int z=0; z<depth; z++) {
+			levelSeeds[z] = random.nextLong();
+			stairSeeds[z] = random.nextLong();
+		}
+		this.exitSeed = random.nextLong();
+		this.pool = ForkJoinPool.commonPool();
+		this.automaton = CaveAutomaton.CAVES;
+		this.smoothIterations = 8;
+	}
+
+	/** Sets the {@linkplain ForkJoinPool} that generates levels in parallel. The output does not depend on the pool. */
+	public WorldBuilder usePool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
 	}
-	
-	/** Returns the generated world. */
+
+	/** Sets the {@linkplain CaveAutomaton} that smooths the random noise of each level and how many generations it runs. */
+	public WorldBuilder useAutomaton(CaveAutomaton automaton, int iterations) {
+		this.automaton = automaton;
+		this.smoothIterations = iterations;
+		return this;
+	}
+
+	/** Returns the world generated by {@linkplain #makeCaves()}. */
 	public World build() {
-		return new World(tiles);
+		return new World(width, height, tiles, random);
+	}
+
+	/** Returns a world whose levels are generated by this builder as they are loaded. {@linkplain #makeCaves()} is not needed. */
+	public World buildLazy() {
+		return new World(width, height, depth, this, random);
 	}
-	
-	/** Generates the caves for the {@linkplain World}. */
+
+	/** Generates the caves for every level of the {@linkplain World}. */
 	public WorldBuilder makeCaves() {
-		return randomizeTiles()
-				.smooth(8)
-				.createRegions()
-				.connectRegions()
-				.addExitStairs().water();
-	}
-	
-	/** Generates a {@linkplain Tile}[][][] with Tiles that randomly alternate between {@linkplain Tile.FLOOR} and {@linkplain Tile.WALL}. */
-	private WorldBuilder randomizeTiles() {
-		for (int z = 0; z < depth; z++) {
-			//System.out.println("constructing floor " + z);
-			for (int x = 0; x < width; x++) {
-				for (int y = 0; y < height; y++)
-					tiles[x][y][z] = Math.random() < 0.5 ? Tile.FLOOR : Tile.WALL;
-			}
-		}
+		Cave[] all = new Cave[depth];
+		tiles = new byte[depth][];
+		pool.submit(() -> {
+			IntStream.range(0, depth).parallel().forEach(z -> all[z] = makeCave(z));
+			for (int z=0; z<depth-1; z++)
+				stairs[z] = placeStairs(z, all[z], all[z+1], z > 0 ? stairs[z-1] : null);
+			IntStream.range(0, depth).parallel().forEach(z -> tiles[z] = finishLevel(z, all[z], all[(z+5)%depth]));
+		}).join();
 		return this;
 	}
-	
-	// TODO build with random chance of .46 for floor vs wall
-	/** Generates water, replacing floor tiles. */
-	private WorldBuilder water() {
-		for (int z=0; z<depth; z++) {
-			for (int x=0; x < width; x++) {
-				for (int y=0; y<height; y++) {
-					if (tiles[x][y][z] == Tile.FLOOR && tiles[x][y][(z+5)%depth].isGround())
-						tiles[x][y][z] = Tile.WATER;
-				}
-			}
+
+	/** Generates the finished level {@code z}, placing the stairs above and below it and any missing stairs higher up first. */
+	public synchronized byte[] level(int z) {
+		if (z < depth-1)
+			stairs(z);
+		else if (z > 0)
+			stairs(z-1);
+		return finishLevel(z, cave(z), cave((z+5)%depth));
+	}
+
+	/** Returns the stairs below level {@code z}, placing them and any missing stairs above them first. */
+	private int[] stairs(int z) {
+		if (stairs[z] == null) {
+			int[] above = z > 0 ? stairs(z-1) : null;
+			stairs[z] = placeStairs(z, cave(z), cave(z+1), above);
 		}
-		return this;
+		return stairs[z];
 	}
-	
-	/** Creates smooth areas of walls and floor from randomly placed {@linkplain Tile}s. */
-	private WorldBuilder smooth(int times) {
-		Tile[][][] tiles2 = new Tile[width][height][depth];  // TODO move this into loops?
-		for (int time = 0; time < times; time++) {
-			
-			for (int z = 0; z < depth; z++) {
-				//System.out.println("smoothing floor " + z);
-				for (int x = 0; x<width ; x++) {
-					for (int y=0; y<height; y++) {
-						int floors = 0;
-						int rocks = 0;
-						
-						for (int ox = -1; ox < 2; ox++) {
-							for (int oy = -1; oy < 2; oy++) {
-								if (x + ox < 0 || x + ox >= width || y + oy < 0
-				                        || y + oy >= height)
-									continue;
-								else if (tiles[x + ox][y + oy][z] == Tile.FLOOR)
-									floors++;
-								else
-									rocks++;
-							}
-						}
-						tiles2[x][y][z] = floors >= rocks ? Tile.FLOOR : Tile.WALL;
-					}
-				}
-			}
-			tiles = tiles2;
+
+	/** Returns {@code true} if ({@code x}, {@code y}) is ground on level {@code z}. Stairs and water only replace floor, so only the cave is needed. */
+	public synchronized boolean isGround(int x, int y, int z) {
+		return cave(z).tiles[y*width + x] == FLOOR;
+	}
+
+	/** Returns the cave of level {@code z}, generating it again if it isn't among the recently used caves. */
+	private Cave cave(int z) {
+		Cave cave = caves.get(z);
+		if (cave == null) {
+			cave = makeCave(z);
+			caves.put(z, cave);
 		}
-		return this;
+		return cave;
+	}
+
+	/** The floor and walls of a level before stairs and water are added, with each floor region labelled. */
+	private static class Cave {
+		private byte[] tiles;
+		private int[] regions;
+	}
+
+	/** Generates the cave of level {@code z} from that level's random stream. */
+	private Cave makeCave(int z) {
+		Cave cave = new Cave();
+		cave.tiles = randomizeTiles(new Random(levelSeeds[z]));
+		smooth(cave.tiles, smoothIterations);
+		cave.regions = createRegions(cave.tiles);
+		return cave;
+	}
+
+	/**
+	 * Returns the tiles of level {@code z}: its {@code cave} with the stairs to the levels above and below,
+	 * the exit on the top level, and water where the {@code below} cave, five levels down, is floor.
+	 */
+	private byte[] finishLevel(int z, Cave cave, Cave below) {
+		byte[] level = cave.tiles.clone();
+		if (z > 0) {
+			for (int cell : stairs[z-1])
+				level[cell] = STAIRS_UP;
+		}
+		if (z < depth-1) {
+			for (int cell : stairs[z])
+				level[cell] = STAIRS_DOWN;
+		}
+		if (z == 0)
+			addExitStairs(level);
+		for (int i=0; i<level.length; i++) {
+			if (level[i] == FLOOR && below.tiles[i] == FLOOR)
+				level[i] = WATER;
+		}
+		return level;
 	}
-	
-	/** Uniquely labels continuous regions of {@linkplain Tile.FLOOR}. */
-	public WorldBuilder createRegions() {
-//		System.out.println("create regions");
-		regions = new int[width][height][depth];
-		
-		for (int z = 0; z < depth; z++) {
+
+	/** Returns a level of Tiles that randomly alternate between {@linkplain Tile.FLOOR} and {@linkplain Tile.WALL}. */
+	private byte[] randomizeTiles(Random random) {
+		byte[] level = new byte[width * height];
+		for (int i=0; i<level.length; i++)
+			level[i] = random.nextDouble() < 0.5 ? FLOOR : WALL;
+		return level;
+	}
+
+	// TODO build with random chance of .46 for floor vs wall
+
+	/** Creates smooth areas of walls and floor in {@code level} from randomly placed {@linkplain Tile}s using the {@linkplain #automaton}. */
+	private void smooth(byte[] level, int times) {
+		byte[] cells = new byte[level.length];
+		for (int i=0; i<level.length; i++)
+			cells[i] = level[i] == FLOOR ? (byte) 1 : (byte) 0;
+		cells = automaton.run(cells, width, height, times);
+		for (int i=0; i<level.length; i++)
+			level[i] = cells[i] == 1 ? FLOOR : WALL;
+	}
+
+	/**
+	 * Uniquely labels continuous regions of {@linkplain Tile.FLOOR} in {@code level} and removes regions smaller than 25 cells.
+	 * Returns the label of each cell; labels start at 1 and walls are 0.
+	 * <br>The first pass joins each floor cell with its floor neighbors above and to the left in a union-find forest,
+	 * the second counts the size of each tree and labels the cells of every region that is kept.
+	 */
+	private int[] createRegions(byte[] level) {
+		int[] parent = new int[width * height];
+		for (int y = 0; y < height; y++) {
 			for (int x = 0; x < width; x++) {
-				for (int y = 0; y < height; y++) {
-					if (tiles[x][y][z] != Tile.FLOOR && regions[x][y][z] == 0) {
-						int size = fillRegion(nextRegion++, x, y, z);
-						
-						if (size < 25)
-							removeRegion(nextRegion - 1, z);
-					}
+				int i = y*width + x;
+				parent[i] = i;
+				if (level[i] != FLOOR)
+					continue;
+				if (x > 0 && level[i-1] == FLOOR)
+					union(parent, i, i-1);
+				if (y > 0) {
+					int above = i - width;
+					if (x > 0 && level[above-1] == FLOOR)
+						union(parent, i, above-1);
+					if (level[above] == FLOOR)
+						union(parent, i, above);
+					if (x < width-1 && level[above+1] == FLOOR)
+						union(parent, i, above+1);
 				}
 			}
 		}
-		return this;
-	}
-	
-	/** Removes region label and converts it to {@linkplain Tile.WALL} */
-	public void removeRegion(int region, int depth) {
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				if (regions[x][y][depth] == region) {
-					regions[x][y][depth] = 0;
-					tiles[x][y][depth] = Tile.WALL;
-				}
+
+		int[] sizes = new int[width * height];
+		for (int i = 0; i < level.length; i++) {
+			if (level[i] == FLOOR)
+				sizes[find(parent, i)]++;
+		}
+
+		int[] labels = new int[width * height];
+		int nextRegion = 1;
+		for (int i = 0; i < level.length; i++) {
+			if (level[i] != FLOOR)
+				continue;
+			int root = find(parent, i);
+			if (sizes[root] < 25) {
+				level[i] = WALL;
+				continue;
 			}
+			if (labels[root] == 0)
+				labels[root] = nextRegion++;
+			labels[i] = labels[root];
 		}
+		return labels;
 	}
-	
-	/** Labels all continuous {@linkplain Tile.FLOOR} with {@code region} and returns the size of the region. */
-	public int fillRegion(int region, int x, int y, int z) {
-		int size = 1;
-		ArrayList<Point> open = new ArrayList<Point>();
-		open.add(new Point(x,y,z));
-		regions[x][y][z] = region;
-		
-		while(!open.isEmpty()) {
-			Point p = open.remove(0);
-			for(Point n : p.neighbors8()) {
-				if (n.x < 0 || n.x >= width || n.y < 0 || n.y >= height)
-					continue;
-				if (tiles[n.x][n.y][n.z] == Tile.WALL || regions[n.x][n.y][n.z] > 0)
-					continue;
-				regions[n.x][n.y][n.z] = region;
-				open.add(n);
-				size++;
-			}
+
+	/** Returns the root of the tree containing {@code i}, halving the path to it on the way. */
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
 		}
-		return size;
+		return i;
+	}
+
+	/** Joins the trees containing {@code a} and {@code b}, keeping the lower root. */
+	private static void union(int[] parent, int a, int b) {
+		int ra = find(parent, a), rb = find(parent, b);
+		if (ra < rb)
+			parent[rb] = ra;
+		else if (rb < ra)
+			parent[ra] = rb;
 	}
-	
-	/** Links together of each floor of the {@linkplain World}. */
-	public WorldBuilder connectRegions() {
-		for (int z=0; z<depth-1; z++) {
-			connectRegionsDown(z);
+
+	/**
+	 * Returns the cells of the stairs connecting the {@code upper} cave of level {@code z} to the {@code lower} cave of level {@code z+1}.
+	 * Every pair of overlapping regions gets at least one staircase. Cells in {@code above} are skipped and cells where {@code x+y+z} is even
+	 * are preferred, which are never among the stairs above unless those fell back too; a pair whose overlap has no even cell uses its odd cells.
+	 * Only if every cell of the overlap is in {@code above} is one of them shared, and it stays down stairs on level {@code z}.
+	 * <br>The candidate cells are grouped by their pair of regions and tier in two passes: the first numbers each pair
+	 * and counts its cells, the second writes the cells of each pair into a contiguous slice of {@code candidates}, even cells first.
+	 * @param above - the stairs between levels {@code z-1} and {@code z}, or {@code null} on the top level
+	 */
+	private int[] placeStairs(int z, Cave upper, Cave lower, int[] above) {
+		boolean[] used = new boolean[width * height];
+		if (above != null) {
+			for (int cell : above)
+				used[cell] = true;
 		}
-		return this;
+		RegionPairs pairs = new RegionPairs();
+		int[] slotOf = new int[width * height];
+		int[] counts = new int[3*16];
+		for (int i = 0; i < slotOf.length; i++) {
+			slotOf[i] = -1;
+			if (upper.tiles[i] != FLOOR || lower.tiles[i] != FLOOR)
+				continue;
+			int pair = pairs.indexOf(upper.regions[i], lower.regions[i]);
+			if (3*pair == counts.length)
+				counts = Arrays.copyOf(counts, counts.length * 2);
+			int tier = used[i] ? 2 : (i % width + i / width + z) & 1;
+			counts[3*pair + tier]++;
+			slotOf[i] = 3*pair + tier;
+		}
+
+		int slots = 3*pairs.size();
+		int[] starts = new int[slots + 1];
+		for (int slot = 0; slot < slots; slot++)
+			starts[slot + 1] = starts[slot] + counts[slot];
+		int[] candidates = new int[starts[slots]];
+		int[] ends = Arrays.copyOf(starts, slots);
+		for (int i = 0; i < slotOf.length; i++) {
+			if (slotOf[i] >= 0)
+				candidates[ends[slotOf[i]]++] = i;
+		}
+
+		Random stairRandom = new Random(stairSeeds[z]);
+		int[] placed = new int[pairs.size() * 2];
+		int count = 0;
+		for (int pair = 0; pair < pairs.size(); pair++) {
+			int slot = 3*pair;
+			while (starts[slot] == starts[slot + 1])
+				slot++;
+			int from = starts[slot], to = starts[slot + 1];
+			shuffle(candidates, from, to, stairRandom);
+			int stairs = 0;
+			do {
+				if (count == placed.length)
+					placed = Arrays.copyOf(placed, placed.length * 2);
+				placed[count++] = candidates[from + stairs];
+				stairs++;
+			} while ((to - from - stairs) / stairs > 250);
+		}
+		return Arrays.copyOf(placed, count);
 	}
-	
-	/** Connects regions in level {@code z} to the regions they overlap in level {@code z+1} */
-	private void connectRegionsDown(int z) {
-		List<String> connected = new ArrayList<String>();
-		for (int x=0; x < width; x++) {
-			for (int y=0; y<height; y++) {
-				String region = regions[x][y][z] + "," + regions[x][y][z+1];
-				if (tiles[x][y][z] == Tile.FLOOR && tiles[x][y][z+1] == Tile.FLOOR && !connected.contains(region)) {
-					connected.add(region);
-					connectRegionsDown(z,  regions[x][y][z],  regions[x][y][z+1]);
-				}
-			}
+
+	/** Randomly permutes {@code cells[from..to)} in the same way as {@linkplain java.util.Collections#shuffle(java.util.List, Random)}. */
+	private static void shuffle(int[] cells, int from, int to, Random random) {
+		for (int i = to - from; i > 1; i--) {
+			int j = from + random.nextInt(i);
+			int swap = cells[from + i - 1];
+			cells[from + i - 1] = cells[j];
+			cells[j] = swap;
 		}
 	}
-	
-	/** Connects levels {@code z} and {@code z+1} by adding stairs that connect regions {@code r1} and {@code r2}. */
-	private void connectRegionsDown(int z, int r1, int r2) {
-		List<Point> candidates = findRegionOverlaps(z, r1, r2);
-		int stairs = 0;
-		do {
-			Point p = candidates.remove(0);
-			tiles[p.x][p.y][p.z] = Tile.STAIRS_DOWN;
-			tiles[p.x][p.y][p.z+1] = Tile.STAIRS_UP;
-			stairs++;			
-		} while (candidates.size() / stairs > 250);
-	}
-	
-	/** Creates a shuffled {@linkplain List} of {@linkplain Point}s at depth {@code z} that overlap in regions {@code r2} and {@code r2}.  */
-	public List<Point> findRegionOverlaps(int z, int r1, int r2){
-		ArrayList<Point> candidates = new ArrayList<Point>();
-		for (int x = 0; x < width; x++){
-			for (int y = 0; y < height; y++){
-				if (tiles[x][y][z] == Tile.FLOOR && tiles[x][y][z+1] == Tile.FLOOR
-						&& regions[x][y][z] == r1 && regions[x][y][z+1] == r2){
-					candidates.add(new Point(x,y,z));
-				}
+
+	/**
+	 * Numbers distinct pairs of region labels in the order they are first seen, using an open addressing table of packed {@code long} keys.
+	 * Labels start at 1, so a key of 0 marks an empty slot.
+	 */
+	private static class RegionPairs {
+		private long[] keys = new long[64];
+		private int[] indices = new int[64];
+		private int size;
+
+		/** Returns the number of distinct pairs seen. */
+		public int size() { return size; }
+
+		/** Returns the index of the pair {@code (r1, r2)}, numbering it if it is new. */
+		public int indexOf(int r1, int r2) {
+			long key = (long) r1 << 32 | r2;
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (keys[slot] != 0) {
+				if (keys[slot] == key)
+					return indices[slot];
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			indices[slot] = size;
+			if (++size * 2 > keys.length)
+				grow();
+			return size - 1;
+		}
+
+		/** Doubles the table, reinserting every key. */
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldIndices = indices;
+			keys = new long[oldKeys.length * 2];
+			indices = new int[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] == 0)
+					continue;
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != 0)
+					slot = (slot + 1) & mask;
+				keys[slot] = oldKeys[i];
+				indices[slot] = oldIndices[i];
 			}
 		}
-		Collections.shuffle(candidates);
-		return candidates;
+
+		private static int hash(long key) {
+			key *= 0x9E3779B97F4A7C15L;
+			return (int) (key ^ (key >>> 32));
+		}
 	}
-	
-	/** Adds a set of stairs on the top level to exit the dungeon. */
-	public WorldBuilder addExitStairs() {
+
+	/** Adds a set of stairs on a random floor of the top {@code level} to exit the dungeon. */
+	private void addExitStairs(byte[] level) {
+		Random exitRandom = new Random(exitSeed);
 		int x = -1, y = -1;
 		do {
-			x = (int) (Math.random() * width);
-			y = (int) (Math.random() * height);
-		} while (tiles[x][y][0] != Tile.FLOOR);
-		
-		tiles[x][y][0] = Tile.STAIRS_UP;
-		return this;
+			x = exitRandom.nextInt(width);
+			y = exitRandom.nextInt(height);
+		} while (level[y*width + x] != FLOOR);
+
+		level[y*width + x] = STAIRS_UP;
 	}
-	
 
 }
@@ -14,10 +14,10 @@ public class ZombieAI extends CreatureAI {
 	}
 	
 	public void onUpdate() {
-		if (Math.random() < 0.25) {
+		if (random().nextDouble() < 0.25) {
 			creature.stay();
 		} else if (canSee(player.location())) {
-			hunt(player.location());
+			hunt(player);
 		} else if (destination != null ) {
 			hunt(destination);
 		} else {
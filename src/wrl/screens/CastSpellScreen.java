@@ -45,7 +45,7 @@ public class CastSpellScreen extends TargetBasedScreen {
 				for (int j=0; j < splash.size(); j++) {
 					if (!isInScreen(top + i - sx, top + j - sy)) 
 						continue;
-					Point p = new Point(player.x() + left + i - sx, player.y() + top - sy + j, player.z());
+					Point p = player.world().point(player.x() + left + i - sx, player.y() + top - sy + j, player.z());
 					if (splash.get(i,j) && player.tile(p).isGround() && player.canSee(p)) {
 						char c = (player.creature(p) == null) ? '*' : player.creature(p).glyph();
 						Color col = i==splash.size()/2 && j==splash.size()/2 ? Color.MAGENTA : Color.RED;
@@ -96,8 +96,10 @@ public class CastSpellScreen extends TargetBasedScreen {
 	 * @param wy - vertical world coordinate of target
 	 */
 	public boolean canSelect(int wx, int wy) {
-		if (spell.delivery() == Spell.Delivery.TARGET)
-			return player.creature(new Point(wx, wy, player.z())) != null || player.canSee(new Point(wx, wy, player.z()));
+		if (spell.delivery() == Spell.Delivery.TARGET) {
+			Point p = player.world().point(wx, wy, player.z());
+			return player.creature(p) != null || player.canSee(p);
+		}
 		return true;
 	}
 
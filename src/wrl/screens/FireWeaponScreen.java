@@ -1,7 +1,6 @@
 package wrl.screens;
 
 import wrl.Creature;
-import wrl.Line;
 import wrl.Point;
 
 /**
@@ -20,12 +19,13 @@ public class FireWeaponScreen extends TargetBasedScreen {
 		if (!super.isAcceptable(dx, dy))
 			return false;
 		
-		Point target = new Point(dx + player.x(), dy + player.y(), player.z());
+		Point target = player.world().point(dx + player.x(), dy + player.y(), player.z());
 		if (!player.canSee(target))
 			return false;
 		
-		for (Point p : new Line(player.x(), player.y(), target.x, target.y, player.z())) {
-			if (!player.realTile(p).isGround()) {
+		line.reset(player.x(), player.y(), target.x, target.y);
+		while (line.next()) {
+			if (!player.world().isGround(line.x(), line.y(), player.z())) {
 				return false;
 			}
 		}
@@ -33,7 +33,7 @@ public class FireWeaponScreen extends TargetBasedScreen {
 	}
 	
 	public void selectWorldCoordinate(int wx, int wy, int screenX, int screenY) {
-		Creature other = player.creature( new Point(wx, wy, player.z()) );
+		Creature other = player.creature(player.world().point(wx, wy, player.z()));
 		if (other == null) {
 			player.notify("There is no one to fire at");
 		} else {
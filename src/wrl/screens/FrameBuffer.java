@@ -0,0 +1,133 @@
+package wrl.screens;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import asciiPanel.AsciiPanel;
+
+/**
+ * Composes a frame of glyphs and colors before it is written to an {@linkplain AsciiPanel}.
+ * Each frame starts from a cached background layer for static parts of a screen such as borders.
+ * {@linkplain #flush(AsciiPanel)} only writes the cells that differ from the previous frame, so anything else
+ * written to the terminal must be followed by {@linkplain #invalidate()}.
+ * <br>A {@code null} color is drawn with the terminal's default color.
+ * @author Arun Sundaram
+ *
+ */
+public class FrameBuffer {
+
+	private int width;
+	private int height;
+
+	private char[] baseGlyphs;
+	private Color[] baseForegrounds;
+
+	private char[] glyphs;
+	private Color[] foregrounds;
+	private Color[] backgrounds;
+
+	private char[] shownGlyphs;
+	private Color[] shownForegrounds;
+	private Color[] shownBackgrounds;
+	private boolean[] shown;
+	private AsciiPanel terminal;
+
+	public FrameBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int size = width * height;
+		baseGlyphs = new char[size];
+		baseForegrounds = new Color[size];
+		glyphs = new char[size];
+		foregrounds = new Color[size];
+		backgrounds = new Color[size];
+		shownGlyphs = new char[size];
+		shownForegrounds = new Color[size];
+		shownBackgrounds = new Color[size];
+		shown = new boolean[size];
+		Arrays.fill(baseGlyphs, ' ');
+	}
+
+	public int width() { return width; }
+	public int height() { return height; }
+
+	/** Writes a glyph to the background layer that every following frame starts from. */
+	public void writeBackground(char glyph, int x, int y, Color foreground) {
+		int i = y*width + x;
+		baseGlyphs[i] = glyph;
+		baseForegrounds[i] = foreground;
+	}
+
+	/** Starts a new frame from the background layer. */
+	public void clear() {
+		System.arraycopy(baseGlyphs, 0, glyphs, 0, glyphs.length);
+		System.arraycopy(baseForegrounds, 0, foregrounds, 0, foregrounds.length);
+		Arrays.fill(backgrounds, null);
+	}
+
+	public void write(char glyph, int x, int y, Color foreground, Color background) {
+		int i = y*width + x;
+		glyphs[i] = glyph;
+		foregrounds[i] = foreground;
+		backgrounds[i] = background;
+	}
+
+	public void write(char glyph, int x, int y, Color foreground) {
+		write(glyph, x, y, foreground, null);
+	}
+
+	/** Writes {@code text} starting at ({@code x}, {@code y}), cut off at the right edge of the frame. */
+	public void write(String text, int x, int y, Color foreground) {
+		int length = Math.min(text.length(), width - x);
+		for (int i=0; i<length; i++)
+			write(text.charAt(i), x + i, y, foreground, null);
+	}
+
+	public void write(String text, int x, int y) {
+		write(text, x, y, null);
+	}
+
+	/** Forgets what the terminal shows, so the next {@linkplain #flush(AsciiPanel)} writes every cell. */
+	public void invalidate() {
+		Arrays.fill(shown, false);
+	}
+
+	/** Forgets what the terminal shows on row {@code y}, so the next {@linkplain #flush(AsciiPanel)} writes it again. */
+	public void invalidateRow(int y) {
+		Arrays.fill(shown, y*width, (y + 1)*width, false);
+	}
+
+	/**
+	 * Writes the cells of the current frame that changed since the last flush to {@code terminal}.
+	 * Every cell is written if the last flush went to a different terminal.
+	 * @return the number of cells written
+	 */
+	public int flush(AsciiPanel terminal) {
+		if (this.terminal != terminal) {
+			this.terminal = terminal;
+			invalidate();
+		}
+		Color defaultForeground = terminal.getDefaultForegroundColor();
+		Color defaultBackground = terminal.getDefaultBackgroundColor();
+		int written = 0;
+		for (int i=0; i<glyphs.length; i++) {
+			if (shown[i] && shownGlyphs[i] == glyphs[i] && same(shownForegrounds[i], foregrounds[i]) && same(shownBackgrounds[i], backgrounds[i]))
+				continue;
+			terminal.write(glyphs[i], i % width, i / width,
+					foregrounds[i] == null ? defaultForeground : foregrounds[i],
+					backgrounds[i] == null ? defaultBackground : backgrounds[i]);
+			shownGlyphs[i] = glyphs[i];
+			shownForegrounds[i] = foregrounds[i];
+			shownBackgrounds[i] = backgrounds[i];
+			shown[i] = true;
+			written++;
+		}
+		return written;
+	}
+
+	/** Colors are often recreated each frame, so they are compared by value. */
+	private static boolean same(Color a, Color b) {
+		return a == b || (a != null && a.equals(b));
+	}
+
+}
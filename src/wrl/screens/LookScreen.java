@@ -18,7 +18,7 @@ public class LookScreen extends TargetBasedScreen {
 	}
 	
 	public void enterWorldCoordinate(int x, int y, int screenX, int screenY) {
-		Point location = new Point(x, y, player.z());
+		Point location = player.world().point(x, y, player.z());
 		Creature creature = player.creature(location);
 		
 		if (creature != null) {
@@ -103,6 +103,9 @@ public class LoseScreen implements Screen {
 		terminal.write("You were killed by " + player.causeOfDeath() + ".", 1, 1);
 		terminal.writeCenter("-- press [enter] to restart --", 19);
 		terminal.writeCenter("-- press [?] in game for help --", 21);
+		playScreen.invalidateRow(1);
+		playScreen.invalidateRow(19);
+		playScreen.invalidateRow(21);
 
 	}
 
@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import asciiPanel.AsciiPanel;
 import wrl.Creature;
@@ -12,7 +13,7 @@ import wrl.FieldOfView;
 import wrl.Item;
 import wrl.MessageHistory;
 import wrl.ObserverFOV;
-import wrl.Point;
+import wrl.RenderSnapshot;
 import wrl.StuffFactory;
 import wrl.Tile;
 import wrl.World;
@@ -32,6 +33,14 @@ public class PlayScreen implements Screen {
 	private int screenWidth;
 	private int screenHeight;
 	private int depth = 10;
+	/** Levels further than this from the player stop updating until the player comes back. */
+	private int activeLevelRadius = 1;
+	/** Levels further than this from the player are evicted from memory. */
+	private int loadedLevelRadius = 2;
+	/** {@code true} if levels are generated as the player reaches them and frozen and evicted once far behind, {@code false} if every level is generated up front and always updates. */
+	private boolean lazyLevels;
+	/** AP refreshes the world ran through before the player entered. Levels generated later are fast forwarded by as many. */
+	private int warmUpRounds;
 	
 	private AsciiPanel terminal;
 	public AsciiPanel terminal() { return terminal; }
@@ -56,42 +65,56 @@ public class PlayScreen implements Screen {
 	
 	private Screen subscreen;
 	
+	private FrameBuffer frame;
+	private RenderSnapshot snapshot;
+	
 	
 	public PlayScreen() {
+		this(new Random().nextLong());
+	}
+	
+	/** Creates a game whose world and events are determined by {@code seed}. Every level is generated up front and keeps updating. */
+	public PlayScreen(long seed) {
+		this(seed, false);
+	}
+	
+	/**
+	 * Creates a game whose world and events are determined by {@code seed}.
+	 * @param lazyLevels - if {@code true}, levels are generated as the player reaches them and distant levels are frozen and evicted from memory;
+	 * if {@code false}, every level is generated and populated before the game starts, stays in memory and keeps updating
+	 */
+	public PlayScreen(long seed, boolean lazyLevels) {
+		this.lazyLevels = lazyLevels;
 		screenWidth = 80;
 		screenHeight = 21;
+		snapshot = new RenderSnapshot(screenWidth, screenHeight);
 		observers = new ArrayList<ObserverFOV>();
 		messageHistory = new MessageHistory();
-		createWorld();
+		createWorld(seed);
 		StuffFactory creatureFactory = new StuffFactory(world, this);
 		createCreatures(creatureFactory);
 	}
 	
-	/** Fills the {@linkplain World} with {@linkplain Item}s and {@linkplain Creature}s. */
+	/**
+	 * Fills the {@linkplain World} with {@linkplain Item}s and {@linkplain Creature}s and lets its plants grow before the player enters.
+	 * With lazy levels only the first level is filled up front; later levels are filled as they are generated and fast forwarded by as many rounds as the first.
+	 */
 	private void createCreatures(StuffFactory factory) {
 		fov = new FieldOfView(world);
-		factory.newVictoryItem(depth - 1);
-		for (int z=0; z<depth; z++) {
-			
-			factory.randomArmor(z);
-			factory.randomWeapon(z);
-
-			for (int i=0; i< world.width()*world.height()/20; i++)
-				factory.newRock(z);
-			
-//			for (int i=0; i<4; i++) {
-				factory.newWolfsbane(z);
-				factory.newHornwort(z);
-				factory.newWhiteMyrtle(z);
-				factory.newCrowsEye(z);
-				factory.newBlowall(z);
-				factory.newSewantMushroom(8, 0.02, z);
-//			}
-			
-		}
+		if (lazyLevels) {
+			world.setLevelPopulator(z -> {
+				factory.populateLevel(z);
+				world.fastForwardLevel(z, warmUpRounds);
+				if (player != null)
+					factory.populateMonsters(z, player);
+			});
+			world.loadLevel(0);
+		} else
+			factory.populateLevels();
 		
 		for (int i=0; i<10000; i++)
 			world.singleUpdate(null);
+		warmUpRounds = world.rounds();
 		
 		player = factory.newPlayer(messageHistory, fov, 0);
 		player.notify("You enter the cave...");
@@ -110,62 +133,26 @@ public class PlayScreen implements Screen {
 		
 //		for (int i=0; i<10; i++) player.equip(factory.newPotionOfPoison(0));
 		
-		
-		for (int z=0; z<depth; z++) {
-			for (int i=0; i<10; i++)
-				factory.newBat(z);
-			
-//			for (int i=0; i< 3; i++)
-//				factory.newZombie(z, player);
-			
-			if (Math.random() > 0.5)
-				factory.newRockTroll(z, player);
-			else
-				factory.newIceTroll(z, player);
-			
-			if (Math.random() > 0.5)
-				factory.newRotfiend(z, player);
-			else
-				factory.newDevourer(z, player);
-			
-			if (Math.random() > 0.5)
-				factory.newAlp(z, player);
-			else
-				factory.newBruxa(z, player);
-			
-			for (int i=0; i<3; i++)
-				factory.newDrowner(z, player);
-			
-			for (int i=0; i<1; i++) 
-				factory.newDrownedDead(z,  player);
-			
-//			for (int i=0; i<3; i++)
-//				factory.randomPotion(z);
-			
-			factory.newGoblin(z, player);
-			
-		}
-//		for (int i=0; i<10; i++) factory.newBlueMageSpellbook(0);
-//		boolean first = Math.random() < 0.5;
-//		if (first) {
-//			factory.newBlueMageSpellbook(  (int)(Math.random()*3)  );
-//			factory.newWhiteMageSpellbook( (int)(Math.random()*3) + 3  );
-//		} else {
-//			factory.newBlueMageSpellbook(  (int)(Math.random()*3) + 3  );
-//			factory.newWhiteMageSpellbook( (int)(Math.random()*3)  );
-//		}
+		if (lazyLevels)
+			factory.populateMonsters(0, player);
+		else
+			factory.populateMonsters(player);
 	}
 	
-	/** Constructs the {@linkplain World}.
+	/** Constructs the {@linkplain World}, either generating every level now or leaving them to be generated as the player reaches them.
 	 * @see WorldBuilder */
-	private void createWorld() {
-		world = new WorldBuilder(90,31, depth)
-				.makeCaves()
-				.build();
+	private void createWorld(long seed) {
+		if (lazyLevels)
+			world = new WorldBuilder(90,31, depth, seed)
+					.buildLazy();
+		else
+			world = new WorldBuilder(90,31, depth, seed)
+					.makeCaves()
+					.build();
 	}
 	
 	/** Writes the lines stored in the {@linkplain MessageHistory} that are currently in focus. */
-	private void displayMessages(AsciiPanel terminal) {
+	private void displayMessages() {
 		List<String> visibleMessage = messageHistory.get(historyIndex, historyLines);
 		int newMessages =  messageHistory.newMessages();
 		int notifyWidth = 59;
@@ -174,52 +161,52 @@ public class PlayScreen implements Screen {
 				visibleMessage.set(i, visibleMessage.get(i).substring(0, notifyWidth));
 			boolean recent = historyIndex + visibleMessage.size() - i <= newMessages;
 			Color color = recent ? AsciiPanel.white : Color.GRAY;		//AsciiPanel.brightWhite : AsciiPanel.white;
-			terminal.write(visibleMessage.get(i), 20, 23+i, color);
+			frame.write(visibleMessage.get(i), 20, 23+i, color);
 		}
 		
 		if (messageHistory.size() > historyIndex + historyLines) {
 			boolean bright = historyIndex + historyLines < newMessages;
-			terminal.write((char)174, 76, 22, bright ? AsciiPanel.brightWhite : Color.DARK_GRAY);
+			frame.write((char)174, 76, 22, bright ? AsciiPanel.brightWhite : Color.DARK_GRAY);
 		}
 		
 		if (historyIndex > 0) {
 			boolean bright = newMessages > 0 && messageHistory.size() > historyLines && historyIndex > 0;
-			terminal.write((char)175, 77, 22, bright ? AsciiPanel.brightWhite : Color.DARK_GRAY);
+			frame.write((char)175, 77, 22, bright ? AsciiPanel.brightWhite : Color.DARK_GRAY);
 		}
 	}
 	
-	/** Writes the border that separates regions of the PlayScreen to the {@linkplain AsciiPanel}. */
-	public void displayBorder(AsciiPanel terminal) {
+	/** Writes the border that separates regions of the PlayScreen to the background layer of the {@linkplain FrameBuffer}. */
+	private void displayBorder(FrameBuffer frame) {
 		for (int i=0; i<80; i++) {
-			terminal.write((char)205, i, 22, Color.DARK_GRAY);
-			terminal.write((char)205, i, 29, Color.DARK_GRAY);
+			frame.writeBackground((char)205, i, 22, Color.DARK_GRAY);
+			frame.writeBackground((char)205, i, 29, Color.DARK_GRAY);
 		}
-		terminal.write((char)203, 18, 22, Color.DARK_GRAY);
+		frame.writeBackground((char)203, 18, 22, Color.DARK_GRAY);
 		for (int i=23; i<29; i++) {
-			terminal.write((char)186, 18, i, Color.DARK_GRAY);
+			frame.writeBackground((char)186, 18, i, Color.DARK_GRAY);
 		}
-		terminal.write((char)202, 18, 29, Color.DARK_GRAY);
+		frame.writeBackground((char)202, 18, 29, Color.DARK_GRAY);
 	}
 	
-	/** Writes the player's current state to the {@linkplain AsciiPanel}. */
-	private void displayPlayerStats(AsciiPanel terminal) {
+	/** Writes the player's current state to the {@linkplain FrameBuffer}. */
+	private void displayPlayerStats() {
 		int y = 23;
 
-//		terminal.write(hunger(), 1, y++, Color.ORANGE);
-		terminal.write(String.format("hp %4d/%4d", player.hp(), player.maxHP()), 1, y++);
-		terminal.write(String.format("mp %4d/%4d", player.mana(), player.maxMana()), 1, y++);
-		terminal.write(String.format("tox %3d/%3d", player.toxicity(), player.maxToxicity()), 1, y++);
+//		frame.write(hunger(), 1, y++, Color.ORANGE);
+		frame.write(String.format("hp %4d/%4d", player.hp(), player.maxHP()), 1, y++);
+		frame.write(String.format("mp %4d/%4d", player.mana(), player.maxMana()), 1, y++);
+		frame.write(String.format("tox %3d/%3d", player.toxicity(), player.maxToxicity()), 1, y++);
 		if (player.armor() != null)
-			terminal.write(player.armor().name(), 1, y++);
+			frame.write(player.armor().name(), 1, y++);
 		if (player.meleeWeapon() != null)
-			terminal.write(player.meleeWeapon().name(), 1, y++);
+			frame.write(player.meleeWeapon().name(), 1, y++);
 		if (player.rangedWeapon() != null)
-			terminal.write(player.rangedWeapon().name(), 1, y++);
+			frame.write(player.rangedWeapon().name(), 1, y++);
 		
 		int count = 0, x = 17;
 		for (Effect e : player.effects()) {
 			if (e.isPotionEffect() && e.color() != null) {
-				terminal.write(""+(char)168, x-count/6, 23 + count%6, e.color());
+				frame.write(""+(char)168, x-count/6, 23 + count%6, e.color());
 				count++;
 			}
 		}
@@ -246,49 +233,35 @@ public class PlayScreen implements Screen {
 	}
 	
 	/**
-	 * Updates active {@linkplain FieldOfView}s and writes the {@linkplain Tile}s and entities in the bounds of the screen to the {@linkplain AsciiPanel}.
-	 * @param terminal - displaying class
+	 * Updates active {@linkplain FieldOfView}s and writes the {@linkplain Tile}s and entities in the bounds of the screen to the {@linkplain FrameBuffer}.
 	 * @param left - world coordinate of left of screen
 	 * @param top - world coordinate of top of screen
 	 * @param depth - world level
 	 */
-	private void displayTiles(AsciiPanel terminal, int left, int top, int depth) {
+	private void displayTiles(int left, int top, int depth) {
 		fov.update(player.location(), player.visionRadius());
 		for (ObserverFOV obs : observers) {
 			if (obs.location().z == player.z())
 				fov.addFOV(obs.updateFOV(), player.z());
 //			fov.addFOV(obs.updateFOV(), obs.location().z);
 		}
-		Point location = new Point(-1, -1, depth);
-		for(int x = 0; x < screenWidth; x++) {
-			for (int y=0; y<screenHeight; y++) {
-				
-				location = new Point(x + left, y + top, location.z);
-				
-				if (player.canSee(location)) {
-					terminal.write(world.glyph(location, player),x, y, fov.visibleColor(location, player), world.backgroundColor(location));
-				} else if (player.canDetect(location)) {
-					terminal.write(world.glyph(location, player), x, y, Color.darkGray);
-				} else {
-					terminal.write(fov.tile(location).glyph(), x, y, Color.darkGray.darker());
-				}
-			}
-		}
+		snapshot.update(world, player, fov, left, top, depth);
+		for (int y=0; y<screenHeight; y++)
+			for(int x = 0; x < screenWidth; x++)
+				frame.write(snapshot.glyph(x, y), x, y, snapshot.foreground(x, y), snapshot.background(x, y));
 	}
 	
 	@Override
 	public void displayOutput(AsciiPanel terminal) {
 		if (this.terminal == null)
 			this.terminal = terminal;
-		int left = getScrollX();
-		int top = getScrollY();
-		displayTiles(terminal, left, top, player.z());
-		displayPlayerStats(terminal);
-	    displayBorder(terminal);
-	    displayMessages(terminal);
+		composeFrame(getScrollX(), getScrollY());
+		frame.flush(terminal);
 	    
-	    if (subscreen != null)
+	    if (subscreen != null) {
 	    	subscreen.displayOutput(terminal);
+	    	frame.invalidate();
+	    }
 	}
 	
 	/** Writes output to a pre-stored AsciiPanel for display. */
@@ -297,12 +270,31 @@ public class PlayScreen implements Screen {
 			displayOutput(terminal);
 	}
 	
-	/** Displays tiles for other screens. */
+	/**
+	 * Displays tiles for other screens. Only the cells that changed since the last frame are written,
+	 * so a screen that draws over the frame must {@linkplain #invalidateRow(int) invalidate} the rows it wrote to.
+	 */
 	public void displayOutput(AsciiPanel terminal, int left, int top) {
-		displayTiles(terminal, left, top, player.z());
-		displayPlayerStats(terminal);
-	    displayBorder(terminal);
-	    displayMessages(terminal);
+		composeFrame(left, top);
+		frame.flush(terminal);
+	}
+	
+	/** Marks row {@code y} of the terminal as drawn over, so the next frame writes all of it. */
+	public void invalidateRow(int y) {
+		if (frame != null)
+			frame.invalidateRow(y);
+	}
+	
+	/** Draws the next frame into the {@linkplain FrameBuffer}, on top of the cached border. */
+	private void composeFrame(int left, int top) {
+		if (frame == null) {
+			frame = new FrameBuffer(80, 30);
+			displayBorder(frame);
+		}
+		frame.clear();
+		displayTiles(left, top, player.z());
+		displayPlayerStats();
+	    displayMessages();
 	}
 	
 	/** Returns a short description of the player's hunger. */
@@ -392,8 +384,13 @@ public class PlayScreen implements Screen {
 		
 		
 		
-		if (subscreen == null && (player.ap() < ap || invalidCount < invalidMax))
+		if (subscreen == null && (player.ap() < ap || invalidCount < invalidMax)) {
 			world.update(player);
+			if (lazyLevels) {
+				world.freezeLevelsFarFrom(player.z(), activeLevelRadius);
+				world.evictLevelsFarFrom(player.z(), loadedLevelRadius);
+			}
+		}
 		
 		if (player.hp() < 1 && invalidCount < invalidMax)
 			return new LoseScreen(world, player, this);
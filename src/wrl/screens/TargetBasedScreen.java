@@ -4,8 +4,7 @@ import java.awt.event.KeyEvent;
 
 import asciiPanel.AsciiPanel;
 import wrl.Creature;
-import wrl.Line;
-import wrl.Point;
+import wrl.LineWalker;
 
 public class TargetBasedScreen implements Screen {
 	
@@ -22,6 +21,8 @@ public class TargetBasedScreen implements Screen {
 	protected int x;
 	/** Vertical displacement from player to target. */
 	protected int y;
+	/** Walks the line from the player to the target. */
+	protected LineWalker line = new LineWalker();
 	
 	/**
 	 * @param player - Entity from which this targets from
@@ -42,10 +43,11 @@ public class TargetBasedScreen implements Screen {
 			terminal.write('*', x, y, AsciiPanel.brightMagenta);
 			return;
 		}
-		for( Point p : new Line(sx, sy, sx + x, sy + y)) {
-			if (!isInScreen(x, y) || new Point(sx, sy, 0).equals(p))
+		line.reset(sx, sy, sx + x, sy + y);
+		while (line.next()) {
+			if (!isInScreen(x, y) || line.x() == sx && line.y() == sy)
 				continue;
-			terminal.write('*', p.x, p.y, AsciiPanel.brightMagenta);
+			terminal.write('*', line.x(), line.y(), AsciiPanel.brightMagenta);
 		}
 		terminal.write(caption, 0, 21);
 	}
@@ -2,7 +2,6 @@ package wrl.screens;
 
 import wrl.Creature;
 import wrl.Item;
-import wrl.Line;
 import wrl.Point;
 
 /**
@@ -25,12 +24,13 @@ public class ThrowAtScreen extends TargetBasedScreen {
 	public boolean isAcceptable(int dx, int dy) {
 		if (!super.isAcceptable(dx, dy))
 			return false;
-		Point location = new Point(dx + player.x(), dy + player.y(), player.z());
+		Point location = player.world().point(dx + player.x(), dy + player.y(), player.z());
 		if (!player.canSee(location))
 			return false;
 		
-		for (Point p : new Line(player.x(), player.y(), location.x, location.y)) {
-			if (!player.realTile( new Point(p.x, p.y, player.z()) ).isGround()) {
+		line.reset(player.x(), player.y(), location.x, location.y);
+		while (line.next()) {
+			if (!player.world().isGround(line.x(), line.y(), player.z())) {
 				return false;
 			}
 		}
@@ -38,7 +38,7 @@ public class ThrowAtScreen extends TargetBasedScreen {
 	}
 	
 	public void selectWorldCoordinate(int wx, int wy, int screenX, int screenY) {
-		player.throwItem(item, new Point(wx, wy, player.z()));
+		player.throwItem(item, player.world().point(wx, wy, player.z()));
 	}
 
 }